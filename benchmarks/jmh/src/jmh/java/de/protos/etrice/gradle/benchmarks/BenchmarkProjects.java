@@ -0,0 +1,65 @@
+package de.protos.etrice.gradle.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+
+/**
+ * Creates the Gradle projects and model files that the benchmarks operate on.
+ */
+class BenchmarkProjects {
+	
+	/**
+	 * @param dir the project directory
+	 * @return a new in-memory Gradle project
+	 */
+	static Project createProject(Path dir) {
+		return ProjectBuilder.builder().withProjectDir(dir.toFile()).build();
+	}
+	
+	/**
+	 * Writes model files that do not import each other.
+	 * 
+	 * @param dir the directory of the model files
+	 * @param prefix the prefix of the model names
+	 * @param count the number of model files
+	 * @return the written model files
+	 */
+	static List<Path> writeModels(Path dir, String prefix, int count) {
+		List<Path> files = new ArrayList<>();
+		try {
+			Files.createDirectories(dir);
+			for(int i = 0; i < count; i++) {
+				Path file = dir.resolve(prefix + i + ".room");
+				String content = "RoomModel " + prefix + i + " {\n\tActorClass A" + i + " {\n\t}\n}\n";
+				Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+				files.add(file);
+			}
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return files;
+	}
+	
+	/**
+	 * @param prefix the prefix of the temporary directory
+	 * @return a new temporary directory
+	 */
+	static Path createTempDir(String prefix) {
+		try {
+			return Files.createTempDirectory(prefix);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,70 @@
+package de.protos.etrice.gradle.benchmarks;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.gradle.api.Project;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.protos.etrice.gradle.GenerateTask;
+
+/**
+ * Measures the assembly of the generator command line by {@code GenerateTask.collectArguments} for source sets of different sizes.
+ * The model files do not need to exist, since the arguments only contain their paths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollectArgumentsBenchmark {
+	
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	public int files;
+	
+	private GenerateTask task;
+	private Method collectArguments;
+	private List<File> sourceFiles;
+	private File genDir;
+	
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		Path dir = BenchmarkProjects.createTempDir("etrice-arguments-benchmark");
+		Project project = BenchmarkProjects.createProject(dir);
+		task = project.getTasks().register("generateBenchmark", GenerateTask.class, t -> {
+			t.getModelpath().from(dir.resolve("model"), dir.resolve("modellib"));
+			t.getOptions().put(GenerateTask.OPTION_CLEAN, true);
+			t.getOptions().put(GenerateTask.OPTION_LOGLEVEL, "warning");
+			t.getOptions().put("msc_instr", true);
+		}).get();
+		collectArguments = GenerateTask.class.getDeclaredMethod("collectArguments", Iterable.class, File.class);
+		collectArguments.setAccessible(true);
+		
+		sourceFiles = new ArrayList<>();
+		for(int i = 0; i < files; i++)
+			sourceFiles.add(dir.resolve("model/package" + (i % 100) + "/model" + i + ".room").toFile());
+		genDir = dir.resolve("src-gen").toFile();
+	}
+	
+	@Benchmark
+	public Object collectArguments(FileCounter counter) throws ReflectiveOperationException {
+		counter.files += files;
+		return collectArguments.invoke(task, sourceFiles, genDir);
+	}
+
+}
@@ -0,0 +1,23 @@
+package de.protos.etrice.gradle.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the processed files, JMH reports the counter as files per second.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class FileCounter {
+	
+	public long files;
+	
+	@Setup(Level.Iteration)
+	public void reset() {
+		files = 0;
+	}
+
+}
@@ -0,0 +1,80 @@
+package de.protos.etrice.gradle.benchmarks;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.gradle.api.model.ObjectFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.protos.etrice.gradle.GeneratorParameters;
+import de.protos.etrice.gradle.GeneratorRequest;
+import de.protos.etrice.gradle.GeneratorWorker;
+import de.protos.etrice.gradle.stub.StubGeneratorModule;
+
+/**
+ * Measures {@link GeneratorWorker#execute()} in-process with the stub generator.
+ * Each invocation executes a batch of requests, the generator application is taken from the cache of the worker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratorWorkerBenchmark {
+	
+	@Param({ "1", "10", "100" })
+	public int requests;
+	
+	@Param({ "1", "10", "100" })
+	public int filesPerRequest;
+	
+	private GeneratorWorker worker;
+	
+	@Setup
+	public void setup() {
+		Path dir = BenchmarkProjects.createTempDir("etrice-worker-benchmark");
+		ObjectFactory objects = BenchmarkProjects.createProject(dir.resolve("project")).getObjects();
+		
+		List<GeneratorRequest> requestList = new ArrayList<>();
+		for(int i = 0; i < requests; i++) {
+			List<String> args = new ArrayList<>();
+			args.add("-genDir");
+			args.add(dir.resolve("src-gen/" + i).toString());
+			BenchmarkProjects.writeModels(dir.resolve("model/" + i), "model", filesPerRequest).forEach(file -> args.add(file.toString()));
+			File failureFile = dir.resolve("failure-" + i + ".txt").toFile();
+			File metricsFile = dir.resolve("metrics-" + i + ".properties").toFile();
+			requestList.add(new GeneratorRequest(args.toArray(new String[0]), failureFile, metricsFile));
+		}
+		
+		GeneratorParameters parameters = objects.newInstance(GeneratorParameters.class);
+		parameters.getModule().set(StubGeneratorModule.NAME);
+		parameters.getRequests().set(requestList);
+		worker = new GeneratorWorker() {
+			@Override
+			public GeneratorParameters getParameters() {
+				return parameters;
+			}
+		};
+	}
+	
+	@Benchmark
+	public void execute(FileCounter counter) {
+		worker.execute();
+		counter.files += (long) requests * filesPerRequest;
+	}
+
+}
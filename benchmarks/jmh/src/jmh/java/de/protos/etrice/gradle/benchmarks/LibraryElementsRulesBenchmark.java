@@ -0,0 +1,144 @@
+package de.protos.etrice.gradle.benchmarks;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.gradle.api.attributes.AttributeCompatibilityRule;
+import org.gradle.api.attributes.AttributeDisambiguationRule;
+import org.gradle.api.attributes.CompatibilityCheckDetails;
+import org.gradle.api.attributes.LibraryElements;
+import org.gradle.api.attributes.MultipleCandidatesDetails;
+import org.gradle.api.model.ObjectFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.protos.etrice.gradle.ETriceBasePlugin;
+
+/**
+ * Measures the compatibility and disambiguation rules for the {@link LibraryElements} attribute of the base plugin.
+ * Each invocation checks all pairs of consumer and producer values, respectively all consumer values with all candidates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LibraryElementsRulesBenchmark {
+	
+	private AttributeCompatibilityRule<LibraryElements> compatibilityRule;
+	private AttributeDisambiguationRule<LibraryElements> disambiguationRule;
+	private List<LibraryElements> values;
+	private Set<LibraryElements> candidates;
+	
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		ObjectFactory objects = BenchmarkProjects.createProject(BenchmarkProjects.createTempDir("etrice-rules-benchmark")).getObjects();
+		LibraryElements modelDir = objects.named(LibraryElements.class, ETriceBasePlugin.LIBRARY_ELEMENTS_MODEL_DIR);
+		LibraryElements modelIndex = objects.named(LibraryElements.class, ETriceBasePlugin.LIBRARY_ELEMENTS_MODEL_INDEX);
+		LibraryElements modelZip = objects.named(LibraryElements.class, ETriceBasePlugin.LIBRARY_ELEMENTS_MODEL_ZIP);
+		LibraryElements jar = objects.named(LibraryElements.class, LibraryElements.JAR);
+		LibraryElements classes = objects.named(LibraryElements.class, LibraryElements.CLASSES);
+		values = Arrays.asList(modelDir, modelIndex, modelZip, jar, classes);
+		candidates = new HashSet<>(Arrays.asList(modelZip, jar, classes));
+		
+		compatibilityRule = newRule("LibraryElementsCompatiblityRule");
+		disambiguationRule = newRule("LibraryElementsDisambiguationRule", modelDir, modelIndex, modelZip, jar);
+	}
+	
+	@Benchmark
+	public int compatibility() {
+		int compatible = 0;
+		for(LibraryElements consumer : values) {
+			for(LibraryElements producer : values) {
+				Details details = new Details(consumer, producer, candidates);
+				compatibilityRule.execute(details);
+				if(details.compatible)
+					compatible++;
+			}
+		}
+		return compatible;
+	}
+	
+	@Benchmark
+	public List<LibraryElements> disambiguation() {
+		List<LibraryElements> matches = new ArrayList<>();
+		for(LibraryElements consumer : values) {
+			Details details = new Details(consumer, null, candidates);
+			disambiguationRule.execute(details);
+			matches.add(details.closestMatch);
+		}
+		return matches;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <T> T newRule(String name, Object... args) throws ReflectiveOperationException {
+		Class<?> ruleClass = Class.forName(ETriceBasePlugin.class.getName() + "$" + name);
+		Constructor<?> constructor = ruleClass.getDeclaredConstructors()[0];
+		constructor.setAccessible(true);
+		return (T) constructor.newInstance(args);
+	}
+	
+	/**
+	 * Details of a single rule execution.
+	 */
+	private static class Details implements CompatibilityCheckDetails<LibraryElements>, MultipleCandidatesDetails<LibraryElements> {
+		
+		private final LibraryElements consumerValue;
+		private final LibraryElements producerValue;
+		private final Set<LibraryElements> candidateValues;
+		private boolean compatible;
+		private LibraryElements closestMatch;
+		
+		public Details(LibraryElements consumerValue, LibraryElements producerValue, Set<LibraryElements> candidateValues) {
+			this.consumerValue = consumerValue;
+			this.producerValue = producerValue;
+			this.candidateValues = candidateValues;
+		}
+		
+		@Override
+		public LibraryElements getConsumerValue() {
+			return consumerValue;
+		}
+		
+		@Override
+		public LibraryElements getProducerValue() {
+			return producerValue;
+		}
+		
+		@Override
+		public Set<LibraryElements> getCandidateValues() {
+			return candidateValues;
+		}
+		
+		@Override
+		public void compatible() {
+			compatible = true;
+		}
+		
+		@Override
+		public void incompatible() {
+			compatible = false;
+		}
+		
+		@Override
+		public void closestMatch(LibraryElements candidate) {
+			closestMatch = candidate;
+		}
+	
+	}
+
+}
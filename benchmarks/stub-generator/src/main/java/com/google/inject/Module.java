@@ -0,0 +1,8 @@
+package com.google.inject;
+
+/**
+ * Stand-in for the Guice module interface that the generator worker passes to {@code GeneratorApplication}.
+ * It has the same binary name, so the worker of the plugin links against it without Guice on the classpath.
+ */
+public interface Module {
+}
@@ -0,0 +1,21 @@
+package de.protos.etrice.gradle.stub;
+
+import com.google.inject.Module;
+
+/**
+ * Module of the offline stub generator.
+ * It is registered under the name {@value #NAME} in 'META-INF/generators'.
+ */
+public class StubGeneratorModule implements Module {
+	
+	public static final String NAME = "stub";
+	
+	/**
+	 * @param path any file path
+	 * @return true if the path has the extension of a model file
+	 */
+	public static boolean isModelFile(String path) {
+		return path.endsWith(".room") || path.endsWith(".etmap") || path.endsWith(".etphys") || path.endsWith(".etconfig");
+	}
+
+}
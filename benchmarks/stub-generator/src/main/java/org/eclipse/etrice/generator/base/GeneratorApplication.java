@@ -0,0 +1,72 @@
+package org.eclipse.etrice.generator.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.google.inject.Module;
+
+import de.protos.etrice.gradle.stub.StubGeneratorModule;
+
+/**
+ * Offline stand-in for the eTrice generator application with the same API as eTrice.
+ * For each model file on the command line a small source file is written to the directory of the {@code -genDir} option.
+ * All other options are ignored, the model files are not parsed.
+ */
+public class GeneratorApplication {
+	
+	private static final String OPTION_GENDIR = "-genDir";
+	
+	/**
+	 * @param module the generator module, must be a {@link StubGeneratorModule}
+	 * @return a new generator application
+	 */
+	public static GeneratorApplication create(Module module) {
+		if(!(module instanceof StubGeneratorModule))
+			throw new IllegalArgumentException("unsupported generator module " + module.getClass().getName());
+		return new GeneratorApplication();
+	}
+	
+	/**
+	 * @param name the name of the generator module, must be {@value StubGeneratorModule#NAME}
+	 * @return a new generator application
+	 */
+	public static GeneratorApplication create(String name) {
+		if(!StubGeneratorModule.NAME.equals(name))
+			throw new IllegalArgumentException("could not find generator with module name " + name);
+		return new GeneratorApplication();
+	}
+	
+	/**
+	 * Generates a source file for each model file.
+	 * 
+	 * @param args the command line arguments
+	 */
+	public void run(String[] args) {
+		Path genDir = null;
+		for(int i = 0; i < args.length; i++) {
+			if(OPTION_GENDIR.equals(args[i]) && i + 1 < args.length)
+				genDir = new File(args[++i]).toPath();
+		}
+		if(genDir == null)
+			throw new IllegalArgumentException("missing option " + OPTION_GENDIR);
+		try {
+			Files.createDirectories(genDir);
+			for(String arg : args) {
+				if(arg.startsWith("-") || !StubGeneratorModule.isModelFile(arg))
+					continue;
+				String name = new File(arg).getName();
+				String baseName = name.substring(0, name.lastIndexOf('.'));
+				String content = "/* generated from " + name + " */\nvoid " + baseName.replaceAll("\\W", "_") + "(void) {}\n";
+				Files.write(genDir.resolve(baseName + ".c"), content.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,202 @@
+package de.protos.etrice.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.gradle.api.JavaVersion;
+
+/**
+ * Application class data sharing (AppCDS) for generator worker processes.
+ * The first worker process of a generator classpath dumps the classes it has loaded into an archive after its first generator run,
+ * later worker processes map the archive instead of loading and verifying the classes again.
+ * An archive is keyed by a hash of the contents of the generator classpath and the version of the JVM,
+ * so a new generator version or JVM creates a new archive.
+ * Each worker dumps into its own temporary file, which is only published if no archive exists yet, so concurrent workers never write the same file.
+ * The worker that published the archive then records its startup time next to the archive, so that later workers can report the time they saved.
+ * Dynamic archives of a running JVM require Java 17 or newer, on older JVMs class data sharing is not used.
+ */
+class ClassDataSharing {
+	
+	/** the directory of the archives relative to the Gradle user home */
+	public static final String ARCHIVE_DIR = "caches/etrice/class-data-sharing";
+	
+	/** the system property of a worker process that does not share an archive yet, the location where it publishes its archive */
+	static final String ARCHIVE_PROPERTY = "etrice.generator.classDataSharingArchive";
+	
+	private static final String RECORD_DYNAMIC_DUMP_INFO = "-XX:+RecordDynamicDumpInfo";
+	private static final String SHARED_ARCHIVE_FILE = "-XX:SharedArchiveFile=";
+	private static final String STARTUP_FILE_EXTENSION = ".startup";
+	private static final String DISABLE_CDS_LOG = "-Xlog:cds*=off";
+	private static final String DIAGNOSTIC_COMMAND = "com.sun.management:type=DiagnosticCommand";
+	
+	private static final AtomicBoolean DUMPED = new AtomicBoolean(false);
+	private static volatile long startupTime;
+	
+	/**
+	 * Creates the JVM arguments of a worker process.
+	 * If the archive for the classpath exists, it is shared, otherwise the worker may create it.
+	 * The arguments are the same for all workers until the archive is published, so they do not prevent the reuse of workers.
+	 * 
+	 * @param archiveDir the directory of the archives
+	 * @param classpath the generator classpath
+	 * @return the JVM arguments or an empty list if the JVM does not support dynamic archives
+	 */
+	public static List<String> getJvmArgs(File archiveDir, Iterable<File> classpath) {
+		if(!JavaVersion.current().isCompatibleWith(JavaVersion.VERSION_17))
+			return Collections.emptyList();
+		File archive = new File(archiveDir, getKey(classpath) + ".jsa");
+		// Classes that cannot be archived and archives that cannot be mapped are reported as warnings, the JVM continues without sharing them.
+		if(archive.isFile())
+			return Arrays.asList(SHARED_ARCHIVE_FILE + archive.getAbsolutePath(), DISABLE_CDS_LOG);
+		archiveDir.mkdirs();
+		return Arrays.asList(RECORD_DYNAMIC_DUMP_INFO, "-D" + ARCHIVE_PROPERTY + "=" + archive.getAbsolutePath(), DISABLE_CDS_LOG);
+	}
+	
+	/**
+	 * Records the startup time of a new worker process.
+	 * A worker that may create an archive keeps its startup time until it {@link #dumpArchive() dumps} the archive,
+	 * a worker that shares an archive compares its startup time with the stored one.
+	 * 
+	 * @param startupTime the time from the start of the JVM until the generator application was created
+	 * @return the time saved by class data sharing, may be negative, or 0 if this JVM does not share an archive
+	 */
+	public static long recordStartup(long startupTime) {
+		ClassDataSharing.startupTime = startupTime;
+		for(String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+			if(arg.startsWith(SHARED_ARCHIVE_FILE)) {
+				long baseline = readStartup(new File(arg.substring(SHARED_ARCHIVE_FILE.length()) + STARTUP_FILE_EXTENSION));
+				return baseline > 0 ? baseline - startupTime : 0;
+			}
+		}
+		return 0;
+	}
+	
+	/**
+	 * Dumps the classes loaded so far into a temporary archive and publishes it unless another worker has published an archive meanwhile.
+	 * Only the first call of a worker that does not share an archive yet dumps the archive.
+	 * A failed dump is not an error, the worker then just does not create the archive.
+	 */
+	public static void dumpArchive() {
+		String location = System.getProperty(ARCHIVE_PROPERTY);
+		if(location == null || DUMPED.getAndSet(true))
+			return;
+		File archive = new File(location);
+		if(archive.exists())
+			return;
+		try {
+			Path tmpPath = Files.createTempFile(archive.getParentFile().toPath(), archive.getName(), ".tmp");
+			try {
+				// The JVM replaces the file with the archive.
+				ManagementFactory.getPlatformMBeanServer().invoke(new ObjectName(DIAGNOSTIC_COMMAND), "vmCds",
+					new Object[] { new String[] { "dynamic_dump", tmpPath.toAbsolutePath().toString() } }, new String[] { String[].class.getName() });
+				if(Files.size(tmpPath) > 0 && publish(tmpPath, archive.toPath()))
+					writeStartup(new File(location + STARTUP_FILE_EXTENSION), startupTime);
+			}
+			finally {
+				Files.deleteIfExists(tmpPath);
+			}
+		}
+		catch(IOException | UncheckedIOException | JMException e) {
+			// Class data sharing is an optimization, the next worker tries again.
+		}
+	}
+	
+	/**
+	 * @return true if this JVM creates or shares an archive of the generator classes
+	 */
+	public static boolean isEnabled() {
+		return System.getProperty(ARCHIVE_PROPERTY) != null || ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+			.anyMatch(arg -> arg.startsWith(SHARED_ARCHIVE_FILE));
+	}
+	
+	/**
+	 * @param classpath the generator classpath
+	 * @return the hex encoded hash of the JVM version and the contents of the classpath
+	 */
+	static String getKey(Iterable<File> classpath) {
+		MessageDigest digest = StableClasspath.createDigest();
+		String jvm = System.getProperty("java.vm.vendor") + '/' + System.getProperty("java.vm.version") + '/' + System.getProperty("os.arch");
+		digest.update(jvm.getBytes(StandardCharsets.UTF_8));
+		for(File file : classpath) {
+			digest.update(file.getName().getBytes(StandardCharsets.UTF_8));
+			digest.update(StableClasspath.getHash(file));
+		}
+		return StableClasspath.toHex(digest.digest());
+	}
+	
+	/**
+	 * Publishes a file only if the target does not exist.
+	 * A hard link is created atomically, file systems without hard links fall back to a move that checks the target first.
+	 * 
+	 * @param file the complete file
+	 * @param target the location to publish the file at
+	 * @return true if the file has been published, false if the target already existed
+	 * @throws IOException if the file cannot be published
+	 */
+	private static boolean publish(Path file, Path target) throws IOException {
+		try {
+			Files.createLink(target, file);
+			return true;
+		}
+		catch(FileAlreadyExistsException e) {
+			return false;
+		}
+		catch(UnsupportedOperationException | IOException e) {
+			try {
+				Files.move(file, target);
+				return true;
+			}
+			catch(FileAlreadyExistsException e2) {
+				return false;
+			}
+		}
+	}
+	
+	private static void writeStartup(File file, long startupTime) {
+		Properties properties = new Properties();
+		properties.setProperty("startupTime", String.valueOf(startupTime));
+		try {
+			Path tmpPath = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+			try(OutputStream out = Files.newOutputStream(tmpPath)) {
+				properties.store(out, null);
+			}
+			Files.move(tmpPath, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private static long readStartup(File file) {
+		if(!file.isFile())
+			return 0;
+		Properties properties = new Properties();
+		try(InputStream in = Files.newInputStream(file.toPath())) {
+			properties.load(in);
+			return Long.parseLong(properties.getProperty("startupTime", "0"));
+		}
+		catch(IOException | NumberFormatException e) {
+			// The startup time is only informative, report no saving.
+			return 0;
+		}
+	}
+
+}
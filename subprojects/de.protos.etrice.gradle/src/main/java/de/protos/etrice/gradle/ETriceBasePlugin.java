@@ -2,6 +2,7 @@ package de.protos.etrice.gradle;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -17,6 +18,8 @@ import org.gradle.api.artifacts.ConfigurationContainer;
 import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.artifacts.ModuleDependency;
 import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.gradle.api.artifacts.type.ArtifactTypeDefinition;
+import org.gradle.api.attributes.Attribute;
 import org.gradle.api.attributes.AttributeCompatibilityRule;
 import org.gradle.api.attributes.AttributeDisambiguationRule;
 import org.gradle.api.attributes.Category;
@@ -25,15 +28,19 @@ import org.gradle.api.attributes.LibraryElements;
 import org.gradle.api.attributes.MultipleCandidatesDetails;
 import org.gradle.api.attributes.Usage;
 import org.gradle.api.component.AdhocComponentWithVariants;
+import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.Directory;
 import org.gradle.api.file.DuplicatesStrategy;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFile;
 import org.gradle.api.file.SourceDirectorySet;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.plugins.BasePlugin;
 import org.gradle.api.plugins.JvmEcosystemPlugin;
 import org.gradle.api.plugins.PluginContainer;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
 import org.gradle.api.tasks.TaskContainer;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.bundling.Zip;
@@ -54,11 +61,17 @@ public class ETriceBasePlugin implements Plugin<Project> {
 	
 	public static final String GENERATE_TASK_NAME = "generate";
 	public static final String ZIP_MODEL_TASK_NAME = "zipModel";
+	public static final String INDEX_MODEL_TASK_NAME = "indexModel";
 	public static final String ECLIPSE_MODELPATH_TASK_NAME = "eclipseModelpath";
+	public static final String MODEL_DEPENDENTS_TASK_NAME = "modelDependents";
+	public static final String WARM_UP_GENERATOR_TASK_NAME = "warmUpGenerator";
 	
 	public static final String LIBRARY_ELEMENTS_MODEL_DIR = "model-dir";
 	public static final String LIBRARY_ELEMENTS_MODEL_ZIP = "model-zip";
 	
+	/** whether model archives are extracted, the modelpath requests extracted archives to trigger the {@link UnzipModelTransform} */
+	public static final Attribute<Boolean> MODEL_EXTRACTED_ATTRIBUTE = Attribute.of("de.protos.etrice.modelExtracted", Boolean.class);
+	
 	@Override
 	public void apply(Project project) {
 		final PluginContainer plugins = project.getPlugins();
@@ -67,6 +80,7 @@ public class ETriceBasePlugin implements Plugin<Project> {
 		final TaskContainer tasks = project.getTasks();
 		final ProjectLayout layout = project.getLayout();
 		final ObjectFactory objects = project.getObjects();
+		final ProviderFactory providers = project.getProviders();
 		
 		plugins.apply(BasePlugin.class);
 		plugins.apply(JvmEcosystemPlugin.class);
@@ -82,6 +96,13 @@ public class ETriceBasePlugin implements Plugin<Project> {
 					);
 				});
 			});
+		dependencies.getAttributesSchema().attribute(MODEL_EXTRACTED_ATTRIBUTE);
+		dependencies.getArtifactTypes().maybeCreate(ArtifactTypeDefinition.ZIP_TYPE).getAttributes().attribute(MODEL_EXTRACTED_ATTRIBUTE, false);
+		dependencies.getArtifactTypes().maybeCreate(ArtifactTypeDefinition.JAR_TYPE).getAttributes().attribute(MODEL_EXTRACTED_ATTRIBUTE, false);
+		dependencies.registerTransform(UnzipModelTransform.class, spec -> {
+			spec.getFrom().attribute(MODEL_EXTRACTED_ATTRIBUTE, false);
+			spec.getTo().attribute(MODEL_EXTRACTED_ATTRIBUTE, true);
+		});
 		
 		NamedDomainObjectProvider<Configuration> generator = configurations.register(GENERATOR_CONFIGURATION_NAME, c -> {
 			c.setCanBeConsumed(false);
@@ -107,45 +128,131 @@ public class ETriceBasePlugin implements Plugin<Project> {
 			c.setCanBeResolved(true);
 			c.setVisible(false);
 			c.getAttributes().attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE, objects.named(LibraryElements.class, LIBRARY_ELEMENTS_MODEL_DIR));
+			c.getAttributes().attribute(MODEL_EXTRACTED_ATTRIBUTE, true);
 			c.extendsFrom(modelpath.get());
 		});
 		
+		tasks.register(GENERATE_TASK_NAME, t -> {
+			t.setDescription("Executes the generate task for each model source set");
+		});
+		
+		Provider<GenerateBatchService> batchService = project.getGradle().getSharedServices()
+			.registerIfAbsent(GenerateBatchService.SERVICE_NAME, GenerateBatchService.class, spec -> {});
+		Provider<GenerationMetricsService> metricsService = registerMetricsService(project);
+		Provider<GeneratorWorkerLimitService> workerLimitService = registerWorkerLimitService(project);
+		Provider<String> workerHeapSize = project.getProviders().gradleProperty(GeneratorWorkerLimitService.WORKER_HEAP_SIZE_PROPERTY);
+		File classDataSharingDir = new File(project.getGradle().getGradleUserHomeDir(), ClassDataSharing.ARCHIVE_DIR);
+		File classpathCacheDir = new File(project.getGradle().getGradleUserHomeDir(), StableClasspath.CACHE_DIR);
+		
 		NamedDomainObjectContainer<ModelSource> modelSet = objects.domainObjectContainer(ModelSource.class, name -> {
 			SourceDirectorySet source = objects.sourceDirectorySet(name, name);
 			
 			String capName = capitalize(name);
-			TaskProvider<GenerateTask> generate = tasks.register(GENERATE_TASK_NAME + capName, GenerateTask.class, t -> {
-				t.getClasspath().from(generatorClasspath);
+			Provider<RegularFile> indexFile = layout.getBuildDirectory().file("model-index/" + name + ".bin");
+			TaskProvider<GenerateTask> generate = tasks.register(GENERATE_TASK_NAME + capName, GenerateTask.class);
+			ModelSource modelSource = objects.newInstance(ModelSource.class, name, source, generate);
+			Provider<Directory> defaultGenDir = layout.getBuildDirectory().dir("src-gen/" + name);
+			modelSource.getGenDir().convention(generate.map(t -> defaultGenDir.get()));
+			modelSource.getClasspath().from(generatorClasspath);
+			modelSource.getModelpath().from(source.getSourceDirectories(), generateModelpath);
+			modelSource.getOptions().put(GenerateTask.OPTION_CLEAN, true);
+			modelSource.getOptions().put(GenerateTask.OPTION_LOGLEVEL, "warning");
+			modelSource.getMaxHeapSize().convention(workerHeapSize);
+			
+			TaskProvider<GeneratorWarmUpTask> warmUp = tasks.register(WARM_UP_GENERATOR_TASK_NAME + capName, GeneratorWarmUpTask.class, t -> {
+				t.setDescription("Starts the generator worker of the '" + name + "' model source in advance");
+				t.getClasspath().from(modelSource.getClasspath());
+				t.getModule().set(modelSource.getModule());
+				t.getIsolation().set(modelSource.getIsolation());
+				t.getMaxHeapSize().set(modelSource.getMaxHeapSize());
+				t.getMinHeapSize().set(modelSource.getMinHeapSize());
+				t.getGarbageCollector().set(modelSource.getGarbageCollector());
+				t.getJvmArgs().set(modelSource.getJvmArgs());
+				t.getClassDataSharing().set(modelSource.getClassDataSharing());
+				t.getClassDataSharingDir().set(classDataSharingDir);
+				t.getEnvironmentAllowlist().set(modelSource.getEnvironmentAllowlist());
+				t.getStableClasspath().set(modelSource.getStableClasspath());
+				t.getClasspathCacheDir().set(classpathCacheDir);
+				t.getMetricsService().set(metricsService);
+				t.usesService(metricsService);
+				t.getWorkerLimitService().set(workerLimitService);
+				t.usesService(workerLimitService);
+			});
+			
+			generate.configure(t -> {
+				// A worker runs one work item at a time, so generate waits for the warm-up anyway to find the worker ready.
+				t.dependsOn(modelSource.getWarmUp().map(enabled -> enabled ? Collections.singletonList(warmUp) : Collections.emptyList()));
+				t.getClasspath().from(modelSource.getClasspath());
+				t.setSource(source);
+				t.getModule().set(modelSource.getModule());
+				t.getGenDir().set(modelSource.getGenDir());
+				t.getModelpath().from(modelSource.getModelpath());
+				t.getOptions().putAll(modelSource.getOptions());
+				t.getIncremental().set(modelSource.getIncremental());
+				t.getPartitioned().set(modelSource.getPartitioned());
+				t.getPartitions().set(modelSource.getPartitions());
+				t.getParallelism().set(modelSource.getParallelism());
+				t.getIsolation().set(modelSource.getIsolation());
+				t.getMaxHeapSize().set(modelSource.getMaxHeapSize());
+				t.getMinHeapSize().set(modelSource.getMinHeapSize());
+				t.getGarbageCollector().set(modelSource.getGarbageCollector());
+				t.getJvmArgs().set(modelSource.getJvmArgs());
+				t.getClassDataSharing().set(modelSource.getClassDataSharing());
+				t.getClassDataSharingDir().set(classDataSharingDir);
+				t.getEnvironmentAllowlist().set(modelSource.getEnvironmentAllowlist());
+				t.getStableClasspath().set(modelSource.getStableClasspath());
+				t.getClasspathCacheDir().set(classpathCacheDir);
+				t.getArgumentFile().set(modelSource.getArgumentFile());
+				t.getIndexFile().set(indexFile);
+				t.getBatchService().set(batchService);
+				t.usesService(batchService);
+				t.getMetricsService().set(metricsService);
+				t.usesService(metricsService);
+				t.getWorkerLimitService().set(workerLimitService);
+				t.usesService(workerLimitService);
+			});
+			tasks.register(MODEL_DEPENDENTS_TASK_NAME + capName, ModelDependentsTask.class, t -> {
+				t.setDescription("Lists the models of the '" + name + "' model source that depend on the model specified by --model");
 				t.setSource(source);
-				t.getGenDir().set(layout.getBuildDirectory().dir("src-gen/" + name));
-				t.getModelpath().from(source.getSourceDirectories(), generateModelpath);
-				t.getOptions().put(GenerateTask.OPTION_CLEAN, true);
-				t.getOptions().put(GenerateTask.OPTION_LOGLEVEL, "warning");
+				t.getModelpath().from(modelSource.getModelpath());
+				t.getIndexFile().set(indexFile);
 			});
+			tasks.named(GENERATE_TASK_NAME, t -> t.dependsOn(generate));
 			
-			return objects.newInstance(ModelSource.class, name, source, generate);
+			return modelSource;
 		});
 		project.getExtensions().add(MODEL_EXTENSION_NAME, modelSet);
 		
-		FileCollection allSrcDirs = project.files(project.provider(
-			() -> modelSet.stream().map(modelSource -> modelSource.getSource().getSourceDirectories()).collect(Collectors.toList())));
+		ConfigurableFileCollection allSrcDirs = objects.fileCollection();
+		modelSet.all(modelSource -> allSrcDirs.from(modelSource.getSource().getSourceDirectories()));
 		
+		TaskProvider<ModelIndexTask> indexModel = tasks.register(INDEX_MODEL_TASK_NAME, ModelIndexTask.class, t -> {
+			t.setDescription("Creates the model index that is embedded in the model zip");
+			t.setSource(allSrcDirs);
+			t.include(ModelIndex.MODEL_FILE_PATTERNS);
+			t.getIndexFile().set(layout.getBuildDirectory().file("library-index/model-index.bin"));
+		});
 		TaskProvider<Zip> zipModel = tasks.register(ZIP_MODEL_TASK_NAME, Zip.class, t -> {
+			String indexEntry = ModelIndex.ARCHIVE_INDEX_ENTRY;
 			t.from(allSrcDirs);
+			t.from(indexModel.flatMap(ModelIndexTask::getIndexFile), spec -> {
+				spec.into(indexEntry.substring(0, indexEntry.lastIndexOf('/')));
+				spec.rename(name -> indexEntry.substring(indexEntry.lastIndexOf('/') + 1));
+			});
 			t.getDestinationDirectory().set(layout.getBuildDirectory().dir("libs"));
 			t.getArchiveClassifier().set("model");
 			t.setDuplicatesStrategy(DuplicatesStrategy.EXCLUDE);
+			t.setPreserveFileTimestamps(false);
+			t.setReproducibleFileOrder(true);
 		});
 		tasks.register(ECLIPSE_MODELPATH_TASK_NAME, EclipseModelpathTask.class, t -> {
 			// Create a new provider from the plain values to erase any unwanted task dependencies.
-			t.getSrcDirs().value(project.provider(() -> getEclipseModelpathSrcDirs(layout.getProjectDirectory(), allSrcDirs)));
-			t.getProjects().value(project.provider(() -> getEclipseModelpathProjects(modelpath.get())));
+			// Both providers are evaluated when the configuration cache entry is stored.
+			Directory projectDir = layout.getProjectDirectory();
+			t.getSrcDirs().value(providers.provider(() -> getEclipseModelpathSrcDirs(projectDir, allSrcDirs)));
+			t.getProjects().value(providers.provider(() -> getEclipseModelpathProjects(modelpath.get())));
 			t.getModelpathFile().set(layout.getProjectDirectory().file("modelpath"));
 		});
-		tasks.register(GENERATE_TASK_NAME, t -> {
-			t.setDescription("Executes the generate task for each model source set");
-			t.dependsOn(project.provider(() -> modelSet.stream().map(ms -> ms.getGenerateTask()).collect(Collectors.toList())));
-		});
 		
 		configurations.register(MODELPATH_DIR_CONFIGURATION_NAME, c -> {
 			c.setCanBeConsumed(true);
@@ -165,8 +272,44 @@ public class ETriceBasePlugin implements Plugin<Project> {
 			c.getOutgoing().artifact(zipModel);
 		});
 		
-		project.getComponents().named(AdhocComponentPlugin.ADHOC_COMPONENT_NAME, AdhocComponentWithVariants.class,
-			c -> c.addVariantsFromConfiguration(modelpathZip.get(), unused -> {}));
+		project.getComponents().named(AdhocComponentPlugin.ADHOC_COMPONENT_NAME, AdhocComponentWithVariants.class, c -> {
+			c.addVariantsFromConfiguration(modelpathZip.get(), unused -> {});
+		});
+	}
+	
+	/**
+	 * Registers the service that collects the metrics of the generate and etunit convert tasks of the build.
+	 * The reports are written to 'build/reports/etrice' of the root project.
+	 * 
+	 * @param project the project that uses the service
+	 * @return the shared metrics service
+	 */
+	static Provider<GenerationMetricsService> registerMetricsService(Project project) {
+		Provider<Directory> reportDir = project.getRootProject().getLayout().getBuildDirectory().dir("reports/etrice");
+		return project.getGradle().getSharedServices().registerIfAbsent(GenerationMetricsService.SERVICE_NAME, GenerationMetricsService.class,
+			spec -> spec.getParameters().getReportDir().set(reportDir));
+	}
+	
+	/**
+	 * Registers the service that bounds the number of concurrent generator workers of the build.
+	 * The bound is configured by the Gradle properties {@value GeneratorWorkerLimitService#MAX_WORKERS_PROPERTY},
+	 * {@value GeneratorWorkerLimitService#HEAP_BUDGET_PROPERTY} and {@value GeneratorWorkerLimitService#WORKER_HEAP_SIZE_PROPERTY}
+	 * and enforced by Gradle through the maximum number of parallel usages of the service.
+	 * 
+	 * @param project the project that registers the service
+	 * @return the provider of the worker limit service
+	 */
+	static Provider<GeneratorWorkerLimitService> registerWorkerLimitService(Project project) {
+		ProviderFactory providers = project.getProviders();
+		return project.getGradle().getSharedServices().registerIfAbsent(GeneratorWorkerLimitService.SERVICE_NAME, GeneratorWorkerLimitService.class, spec -> {
+			GeneratorWorkerLimitService.Parameters parameters = spec.getParameters();
+			parameters.getMaxWorkers().set(providers.gradleProperty(GeneratorWorkerLimitService.MAX_WORKERS_PROPERTY).map(Integer::valueOf));
+			parameters.getHeapBudget().set(providers.gradleProperty(GeneratorWorkerLimitService.HEAP_BUDGET_PROPERTY));
+			parameters.getWorkerHeapSize().set(providers.gradleProperty(GeneratorWorkerLimitService.WORKER_HEAP_SIZE_PROPERTY));
+			int limit = GeneratorWorkerLimitService.getLimit(parameters);
+			if(limit > 0)
+				spec.getMaxParallelUsages().set(limit);
+		});
 	}
 	
 	/**
@@ -176,7 +319,7 @@ public class ETriceBasePlugin implements Plugin<Project> {
 	 * @param allSrcDirs the source directories
 	 * @return a list of source directories relative to the project directory
 	 */
-	private Iterable<String> getEclipseModelpathSrcDirs(Directory projectDir, FileCollection allSrcDirs) {
+	private static Iterable<String> getEclipseModelpathSrcDirs(Directory projectDir, FileCollection allSrcDirs) {
 		Path projectPath = projectDir.getAsFile().toPath();
 		return allSrcDirs.getFiles().stream()
 			.map(File::toPath)
@@ -201,7 +344,7 @@ public class ETriceBasePlugin implements Plugin<Project> {
 	 * @param modelpath the configuration to extract module names from 
 	 * @return all module names listed as direct dependencies in the specified configuration
 	 */
-	private Iterable<String> getEclipseModelpathProjects(Configuration modelpath) {
+	private static Iterable<String> getEclipseModelpathProjects(Configuration modelpath) {
 		return modelpath.getAllDependencies().stream()
 			.filter(ModuleDependency.class::isInstance)
 			.map(Dependency::getName)
@@ -30,9 +30,7 @@ public class ETriceCPlugin implements Plugin<Project> {
 			modelSet.create("room", modelSource -> {
 				modelSource.getSource().setSrcDirs(Collections.singletonList(layout.getProjectDirectory().dir("model")));
 				modelSource.getSource().include("**/*.room", "**/*.etmap", "**/*.etphys");
-				modelSource.getGenerateTask().configure(t -> {
-					t.getModule().set("etrice-c");
-				});
+				modelSource.getModule().set("etrice-c");
 				tasks.named(BasePlugin.ASSEMBLE_TASK_NAME, t -> t.dependsOn(modelSource.getGenerateTask()));
 			})
 		);
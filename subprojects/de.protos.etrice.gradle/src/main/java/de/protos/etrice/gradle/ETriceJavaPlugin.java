@@ -29,9 +29,7 @@ public class ETriceJavaPlugin implements Plugin<Project> {
 			modelSet.create("room", modelSource -> {
 				modelSource.getSource().setSrcDirs(Collections.singletonList(layout.getProjectDirectory().dir("model")));
 				modelSource.getSource().include("**/*.room", "**/*.etmap", "**/*.etphys");
-				modelSource.getGenerateTask().configure(t -> {
-					t.getModule().set("etrice-java");
-				});
+				modelSource.getModule().set("etrice-java");
 				tasks.named(BasePlugin.ASSEMBLE_TASK_NAME, t -> t.dependsOn(modelSource.getGenerateTask()));
 			})
 		);
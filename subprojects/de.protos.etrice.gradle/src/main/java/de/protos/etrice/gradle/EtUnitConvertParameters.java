@@ -0,0 +1,25 @@
+package de.protos.etrice.gradle;
+
+import java.io.File;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkParameters;
+
+/**
+ * The parameters of the {@link EtUnitConvertWorker}.
+ * The report files and the xml files are paired by their index.
+ */
+public interface EtUnitConvertParameters extends WorkParameters {
+	Property<String> getConverter();
+	ListProperty<String> getOptions();
+	ConfigurableFileCollection getClasspath();
+	DirectoryProperty getWorkingDir();
+	ListProperty<File> getReportFiles();
+	ListProperty<File> getXmlFiles();
+	RegularFileProperty getMetricsFile();
+	Property<Long> getSubmitTime();
+}
@@ -14,7 +14,9 @@ import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.plugins.ExtensionContainer;
 import org.gradle.api.plugins.JvmEcosystemPlugin;
 import org.gradle.api.plugins.PluginContainer;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
 
 /**
  * Sets up an extension to configure etunit convert tasks.
@@ -56,11 +58,25 @@ public class EtUnitConvertPlugin implements Plugin<Project> {
 			c.extendsFrom(etunit.get());
 		});
 		
-		NamedDomainObjectContainer<EtUnitConvertTask> etunitConverter = objects.domainObjectContainer(EtUnitConvertTask.class, name -> {
-			return tasks.register(name, EtUnitConvertTask.class, t -> {
-				t.getClasspath().from(etunitClasspath);
-				t.include("**/*.etu");
-			}).get();
+		Provider<GenerationMetricsService> metricsService = ETriceBasePlugin.registerMetricsService(project);
+		
+		NamedDomainObjectContainer<EtUnitConvertSource> etunitConverter = objects.domainObjectContainer(EtUnitConvertSource.class, name -> {
+			TaskProvider<EtUnitConvertTask> convert = tasks.register(name, EtUnitConvertTask.class);
+			EtUnitConvertSource convertSource = objects.newInstance(EtUnitConvertSource.class, name, convert);
+			convertSource.getClasspath().from(etunitClasspath);
+			convertSource.include("**/*.etu");
+			
+			convert.configure(t -> {
+				t.getClasspath().from(convertSource.getClasspath());
+				t.setSource(convertSource.getSource());
+				t.getOptions().addAll(convertSource.getOptions());
+				t.getOutputDir().set(convertSource.getOutputDir());
+				t.getConverter().set(convertSource.getConverter().orElse(EtUnitConvertTask.CONVERTER_EXTERNAL));
+				t.getMetricsService().set(metricsService);
+				t.usesService(metricsService);
+			});
+			
+			return convertSource;
 		});
 		
 		extensions.add(ETUNIT_CONVERTER_EXTENSION_NAME, etunitConverter);
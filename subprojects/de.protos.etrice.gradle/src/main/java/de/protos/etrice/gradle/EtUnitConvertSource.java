@@ -0,0 +1,233 @@
+package de.protos.etrice.gradle;
+
+import java.util.Collections;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.gradle.api.Buildable;
+import org.gradle.api.Named;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.TaskDependency;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.util.PatternFilterable;
+import org.gradle.api.tasks.util.PatternSet;
+
+import org.codehaus.groovy.runtime.InvokerHelper;
+
+import groovy.lang.Closure;
+
+/**
+ * Group of etunit files and converter options.
+ * The associated convert task is wired to the properties lazily,
+ * configuring the group therefore does not create the task.
+ * The group can be used in place of its convert task, e.g. as a task dependency,
+ * and other methods and properties of the task are delegated to it, which creates the task.
+ */
+public class EtUnitConvertSource implements Named, PatternFilterable, Buildable {
+	
+	private final String name;
+	private final TaskProvider<EtUnitConvertTask> convertTask;
+	
+	private final ConfigurableFileCollection source;
+	private final PatternSet patterns;
+	private final ConfigurableFileCollection classpath;
+	private final ListProperty<String> options;
+	private final DirectoryProperty outputDir;
+	private final Property<String> converter;
+	
+	@Inject
+	public EtUnitConvertSource(String name, TaskProvider<EtUnitConvertTask> convertTask, ObjectFactory objects) {
+		this.name = name;
+		this.convertTask = convertTask;
+		
+		source = objects.fileCollection();
+		patterns = new PatternSet();
+		classpath = objects.fileCollection();
+		options = objects.listProperty(String.class);
+		outputDir = objects.directoryProperty();
+		converter = objects.property(String.class);
+	}
+	
+	@Override
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * @return the etunit files and directories before the include and exclude patterns are applied
+	 */
+	public ConfigurableFileCollection getSourceFiles() {
+		return source;
+	}
+	
+	/**
+	 * @return the etunit files after the include and exclude patterns are applied
+	 */
+	public FileTree getSource() {
+		return source.getAsFileTree().matching(patterns);
+	}
+	
+	/**
+	 * Adds etunit files or directories.
+	 * 
+	 * @param sources the files or directories to add
+	 * @return this
+	 */
+	public EtUnitConvertSource source(Object... sources) {
+		source.from(sources);
+		return this;
+	}
+	
+	/**
+	 * @return the classpath that contains the etunit converter
+	 */
+	public ConfigurableFileCollection getClasspath() {
+		return classpath;
+	}
+	
+	/**
+	 * @return all converter options
+	 */
+	public ListProperty<String> getOptions() {
+		return options;
+	}
+	
+	/**
+	 * @return the directory of the xml test reports, if not set the xml reports are written next to the etunit files
+	 */
+	public DirectoryProperty getOutputDir() {
+		return outputDir;
+	}
+	
+	/**
+	 * @return the converter engine, see {@link EtUnitConvertTask#getConverter()}
+	 */
+	public Property<String> getConverter() {
+		return converter;
+	}
+	
+	/**
+	 * @return a provider for the associated convert task
+	 */
+	public TaskProvider<EtUnitConvertTask> getConvertTask() {
+		return convertTask;
+	}
+	
+	/**
+	 * @return the dependency on the associated convert task
+	 */
+	@Override
+	public TaskDependency getBuildDependencies() {
+		return task -> Collections.singleton(convertTask.get());
+	}
+	
+	/**
+	 * Delegates the methods of the convert task that the group does not provide, e.g. {@code dependsOn}.
+	 * 
+	 * @param name the name of the method
+	 * @param args the arguments of the method
+	 * @return the result of the method
+	 */
+	public Object methodMissing(String name, Object args) {
+		return InvokerHelper.invokeMethod(convertTask.get(), name, args);
+	}
+	
+	/**
+	 * Delegates the properties of the convert task that the group does not provide.
+	 * 
+	 * @param name the name of the property
+	 * @return the value of the property
+	 */
+	public Object propertyMissing(String name) {
+		return InvokerHelper.getProperty(convertTask.get(), name);
+	}
+	
+	/**
+	 * Delegates the properties of the convert task that the group does not provide.
+	 * 
+	 * @param name the name of the property
+	 * @param value the new value of the property
+	 */
+	public void propertyMissing(String name, Object value) {
+		InvokerHelper.setProperty(convertTask.get(), name, value);
+	}
+	
+	@Override
+	public Set<String> getIncludes() {
+		return patterns.getIncludes();
+	}
+	
+	@Override
+	public Set<String> getExcludes() {
+		return patterns.getExcludes();
+	}
+	
+	@Override
+	public EtUnitConvertSource setIncludes(Iterable<String> includes) {
+		patterns.setIncludes(includes);
+		return this;
+	}
+	
+	@Override
+	public EtUnitConvertSource setExcludes(Iterable<String> excludes) {
+		patterns.setExcludes(excludes);
+		return this;
+	}
+	
+	@Override
+	public EtUnitConvertSource include(String... includes) {
+		patterns.include(includes);
+		return this;
+	}
+	
+	@Override
+	public EtUnitConvertSource include(Iterable<String> includes) {
+		patterns.include(includes);
+		return this;
+	}
+	
+	@Override
+	public EtUnitConvertSource include(Spec<FileTreeElement> includeSpec) {
+		patterns.include(includeSpec);
+		return this;
+	}
+	
+	@Override
+	public EtUnitConvertSource include(@SuppressWarnings("rawtypes") Closure includeSpec) {
+		patterns.include(includeSpec);
+		return this;
+	}
+	
+	@Override
+	public EtUnitConvertSource exclude(String... excludes) {
+		patterns.exclude(excludes);
+		return this;
+	}
+	
+	@Override
+	public EtUnitConvertSource exclude(Iterable<String> excludes) {
+		patterns.exclude(excludes);
+		return this;
+	}
+	
+	@Override
+	public EtUnitConvertSource exclude(Spec<FileTreeElement> excludeSpec) {
+		patterns.exclude(excludeSpec);
+		return this;
+	}
+	
+	@Override
+	public EtUnitConvertSource exclude(@SuppressWarnings("rawtypes") Closure excludeSpec) {
+		patterns.exclude(excludeSpec);
+		return this;
+	}
+	
+}
@@ -2,49 +2,134 @@ package de.protos.etrice.gradle;
 
 import java.io.File;
 import java.nio.file.Path;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.inject.Inject;
 
 import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.FileType;
+import org.gradle.api.file.ProjectLayout;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.OutputFiles;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
 import org.gradle.api.tasks.SourceTask;
 import org.gradle.api.tasks.TaskAction;
-import org.gradle.process.ExecOperations;
+import org.gradle.work.ChangeType;
+import org.gradle.work.FileChange;
+import org.gradle.work.InputChanges;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 
 /**
  * Converts etunit reports to xml test reports.
+ * The xml reports are written next to the etunit reports or to the output directory if it is set.
+ * Only changed reports are converted.
+ * The eTrice converter converts all of them in a single separate Java process.
+ * Alternatively the reports are converted in-process by the built-in streaming converter, which splits large sets of reports across parallel work items.
  */
 public abstract class EtUnitConvertTask extends SourceTask {
 	
-	private static final String ETUNIT_CONVERTER_MAIN = "org.eclipse.etrice.etunit.converter.EtUnitReportConverter";
+	/** the converter option that combines all reports into the file of the next option, the reports are then always converted together */
+	public static final String OPTION_COMBINED = "-combined";
+	/** the converter option that only writes the combined report */
+	public static final String OPTION_ONLY_COMBINED = "-only_combined";
 	
-	private ExecOperations execOperations;
+	/** the eTrice etunit converter on the classpath */
+	public static final String CONVERTER_EXTERNAL = "external";
+	/** the built-in converter that streams the reports with constant memory use */
+	public static final String CONVERTER_BUILT_IN = "builtIn";
 	
-	private ConfigurableFileCollection classpath;
-	private ListProperty<String> options;
+	private final WorkerExecutor workerExecutor;
+	private final FileSystemOperations fileSystemOperations;
+	private final ProjectLayout layout;
+	
+	private final ConfigurableFileCollection stableSource;
+	private final ConfigurableFileCollection classpath;
+	private final FileCollection emptyClasspath;
+	private final ListProperty<String> options;
+	private final DirectoryProperty outputDir;
+	private final Property<Integer> parallelism;
+	private final Property<String> converter;
+	private final Property<GenerationMetricsService> metricsService;
 	
 	@Inject
-	public EtUnitConvertTask(ExecOperations execOperations, ObjectFactory objects) {
-		this.execOperations = execOperations;
+	public EtUnitConvertTask(WorkerExecutor workerExecutor, FileSystemOperations fileSystemOperations, ProjectLayout layout, ObjectFactory objects) {
+		this.workerExecutor = workerExecutor;
+		this.fileSystemOperations = fileSystemOperations;
+		this.layout = layout;
 		
+		stableSource = objects.fileCollection().from((Callable<FileTree>) this::getSource);
 		classpath = objects.fileCollection();
+		emptyClasspath = objects.fileCollection();
 		options = objects.listProperty(String.class);
+		outputDir = objects.directoryProperty();
+		parallelism = objects.property(Integer.class).convention(Runtime.getRuntime().availableProcessors());
+		converter = objects.property(String.class).convention(CONVERTER_EXTERNAL);
+		metricsService = objects.property(GenerationMetricsService.class);
 	}
 	
 	/**
-	 * @return the classpath that contains the etunit converter
+	 * @return the etunit reports to convert
+	 */
+	@Override
+	@Internal
+	public FileTree getSource() {
+		return super.getSource();
+	}
+	
+	/**
+	 * The source of a {@link SourceTask} is a new file tree on every call,
+	 * but Gradle identifies the incremental changes of an input by the instance of its file collection.
+	 * Inputs that skip the task when empty are always incremental.
+	 * 
+	 * @return the etunit reports to convert as a file collection that is stable for the lifetime of the task
 	 */
 	@InputFiles
+	@SkipWhenEmpty
+	@IgnoreEmptyDirectories
+	@PathSensitive(PathSensitivity.RELATIVE)
+	public FileCollection getStableSource() {
+		return stableSource;
+	}
+	
+	/**
+	 * @return the classpath that contains the etunit converter
+	 */
+	@Internal
 	public ConfigurableFileCollection getClasspath() {
 		return classpath;
 	}
 	
+	/**
+	 * @return the classpath of the external converter, the built-in converter does not resolve the classpath
+	 */
+	@Classpath
+	public FileCollection getConverterClasspath() {
+		return CONVERTER_BUILT_IN.equals(converter.get()) ? emptyClasspath : classpath;
+	}
+	
 	/**
 	 * @return All converter options
 	 */
@@ -54,27 +139,190 @@ public abstract class EtUnitConvertTask extends SourceTask {
 	}
 	
 	/**
-	 * @return A list of files representing the converted test reports
+	 * @return the converter engine, {@value #CONVERTER_EXTERNAL} (default) or {@value #CONVERTER_BUILT_IN}
+	 */
+	@Input
+	public Property<String> getConverter() {
+		return converter;
+	}
+	
+	/**
+	 * @return the directory of the xml test reports, the reports keep the relative paths of the etunit files,
+	 * if not set the xml reports are written next to the etunit files
+	 */
+	@Optional
+	@OutputDirectory
+	public DirectoryProperty getOutputDir() {
+		return outputDir;
+	}
+	
+	/**
+	 * @return the xml reports next to the etunit files if no output directory is set
 	 */
 	@OutputFiles
-	public Set<File> getXmlFiles() {
-		return getSource().getFiles().stream()
-			.map(file -> replaceFileExtension(file.toPath(), "xml").toFile())
-			.collect(Collectors.toSet());
+	public List<File> getXmlFiles() {
+		List<File> xmlFiles = new ArrayList<>();
+		if(!outputDir.isPresent() && !options.get().contains(OPTION_ONLY_COMBINED))
+			getSource().forEach(file -> xmlFiles.add(replaceFileExtension(file.toPath(), "xml").toFile()));
+		return xmlFiles;
+	}
+	
+	/**
+	 * @return the combined report of the {@value #OPTION_COMBINED} option, relative paths are resolved against the project directory
+	 */
+	@Optional
+	@OutputFile
+	public File getCombinedFile() {
+		List<String> list = options.get();
+		int index = list.indexOf(OPTION_COMBINED);
+		if(index == -1 || index + 1 >= list.size())
+			return null;
+		return layout.getProjectDirectory().file(list.get(index + 1)).getAsFile();
+	}
+	
+	/**
+	 * @return the maximum number of parallel work items of the built-in converter, defaults to the number of available processors
+	 */
+	@Internal
+	public Property<Integer> getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * @return the service that collects the metrics of this task execution, no metrics are recorded if not set
+	 */
+	@Internal
+	public Property<GenerationMetricsService> getMetricsService() {
+		return metricsService;
 	}
 	
 	/**
-	 * Converts the specified files using the eTrice EtUnitReportConverter class.
+	 * Converts the changed etunit files using the eTrice EtUnitReportConverter class.
+	 * The xml reports of removed etunit files are deleted.
+	 * 
+	 * @param inputChanges the changes of the etunit files since the last execution
 	 */
 	@TaskAction
-	protected void convert() {
-		execOperations.javaexec(spec -> {
-			spec.classpath(classpath);
-			spec.args(options.get());
-			spec.args(getSource());
-			spec.getMainClass().set(ETUNIT_CONVERTER_MAIN);
-			spec.setIgnoreExitValue(false);
-		});
+	protected void convert(InputChanges inputChanges) {
+		GenerationMetrics metrics = new GenerationMetrics(getPath(), EtUnitConvertTask.class.getSimpleName());
+		boolean failed = true;
+		try {
+			convert(inputChanges, metrics);
+			failed = false;
+		}
+		finally {
+			metrics.finish(failed);
+			if(metricsService.isPresent())
+				metricsService.get().record(metrics);
+		}
+	}
+	
+	/**
+	 * Converts the changed etunit files and waits for the completion of the work items.
+	 * The external converter gets a single work item, since each work item starts a Java process.
+	 * 
+	 * @param inputChanges the changes of the etunit files since the last execution
+	 * @param metrics the metrics of this task execution
+	 */
+	private void convert(InputChanges inputChanges, GenerationMetrics metrics) {
+		boolean combined = options.get().contains(OPTION_COMBINED);
+		if(!inputChanges.isIncremental() || combined) {
+			if(outputDir.isPresent())
+				fileSystemOperations.delete(spec -> spec.delete(outputDir.get().getAsFileTree()));
+			else
+				fileSystemOperations.delete(spec -> spec.delete(getXmlFiles()));
+		}
+		
+		Map<File, File> reportFiles = new LinkedHashMap<>();
+		if(combined) {
+			getSource().visit(details -> {
+				if(!details.isDirectory())
+					reportFiles.put(details.getFile(), getXmlFile(details.getFile(), details.getPath()));
+			});
+		}
+		else {
+			for(FileChange change : inputChanges.getFileChanges(getStableSource())) {
+				if(change.getFileType() == FileType.DIRECTORY)
+					continue;
+				File xmlFile = getXmlFile(change.getFile(), change.getNormalizedPath());
+				if(change.getChangeType() == ChangeType.REMOVED)
+					xmlFile.delete();
+				else
+					reportFiles.put(change.getFile(), xmlFile);
+			}
+		}
+		
+		getLogger().info("Converting {} etunit reports", reportFiles.size());
+		metrics.setInputFiles(reportFiles.size());
+		boolean builtIn = CONVERTER_BUILT_IN.equals(converter.get());
+		if(!builtIn && !CONVERTER_EXTERNAL.equals(converter.get()))
+			throw new IllegalArgumentException("unknown etunit converter " + converter.get() + ", expected one of "
+				+ CONVERTER_EXTERNAL + ", " + CONVERTER_BUILT_IN);
+		List<File> metricsFiles = new ArrayList<>();
+		WorkQueue queue = workerExecutor.noIsolation();
+		for(Map<File, File> chunk : split(reportFiles, builtIn && !combined ? parallelism.get() : 1)) {
+			File metricsFile = new File(getTemporaryDir(), "metrics-" + metricsFiles.size() + ".properties");
+			metricsFile.delete();
+			metricsFiles.add(metricsFile);
+			queue.submit(EtUnitConvertWorker.class, parameters -> {
+				parameters.getConverter().set(converter);
+				parameters.getOptions().set(options);
+				parameters.getClasspath().from(getConverterClasspath());
+				parameters.getWorkingDir().set(layout.getProjectDirectory());
+				parameters.getReportFiles().set(chunk.keySet());
+				parameters.getXmlFiles().set(chunk.values());
+				parameters.getMetricsFile().set(metricsFile);
+				parameters.getSubmitTime().set(System.currentTimeMillis());
+			});
+		}
+		queue.await();
+		metricsFiles.forEach(metrics::addWorkItem);
+		List<File> outputFiles = new ArrayList<>();
+		if(!options.get().contains(OPTION_ONLY_COMBINED))
+			outputFiles.addAll(reportFiles.values());
+		File combinedFile = getCombinedFile();
+		if(combinedFile != null)
+			outputFiles.add(combinedFile);
+		metrics.addOutputFiles(outputFiles.size(), outputFiles.stream().mapToLong(File::length).sum());
+		metrics.addWrittenFiles(outputFiles.size());
+	}
+	
+	/**
+	 * @param file an etunit file
+	 * @param path the relative path of the etunit file
+	 * @return the xml report of the etunit file in the output directory or next to the etunit file
+	 */
+	private File getXmlFile(File file, String path) {
+		Path xmlPath = outputDir.isPresent() ? outputDir.get().getAsFile().toPath().resolve(path) : file.toPath();
+		return replaceFileExtension(xmlPath, "xml").toFile();
+	}
+	
+	/**
+	 * Distributes the reports by size to at most the specified number of chunks.
+	 * 
+	 * @param reportFiles the xml files by etunit file
+	 * @param count the maximum number of chunks
+	 * @return the non-empty chunks
+	 */
+	private static List<Map<File, File>> split(Map<File, File> reportFiles, int count) {
+		int size = Math.max(1, Math.min(count, reportFiles.size()));
+		List<Map<File, File>> chunks = new ArrayList<>();
+		long[] chunkSizes = new long[size];
+		for(int i = 0; i < size; i++)
+			chunks.add(new LinkedHashMap<>());
+		List<File> files = new ArrayList<>(reportFiles.keySet());
+		Collections.sort(files, Comparator.comparingLong(File::length).reversed().thenComparing(Comparator.naturalOrder()));
+		for(File file : files) {
+			int smallest = 0;
+			for(int i = 1; i < size; i++) {
+				if(chunkSizes[i] < chunkSizes[smallest])
+					smallest = i;
+			}
+			chunks.get(smallest).put(file, reportFiles.get(file));
+			chunkSizes[smallest] += file.length();
+		}
+		chunks.removeIf(Map::isEmpty);
+		return chunks;
 	}
 	
 	/**
@@ -84,7 +332,7 @@ public abstract class EtUnitConvertTask extends SourceTask {
 	 * @param extension the name of the new extension
 	 * @return a new path with the replaced file extension
 	 */
-	private static Path replaceFileExtension(Path path, String extension) {
+	static Path replaceFileExtension(Path path, String extension) {
 		Path fileName = path.getFileName();
 		if(fileName == null)
 			return path;
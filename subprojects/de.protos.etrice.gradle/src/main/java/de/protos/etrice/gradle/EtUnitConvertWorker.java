@@ -0,0 +1,129 @@
+package de.protos.etrice.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.gradle.api.GradleException;
+import org.gradle.process.ExecOperations;
+import org.gradle.process.ExecResult;
+import org.gradle.workers.WorkAction;
+
+/**
+ * Gradle worker that runs the eTrice etunit converter or the built-in {@link EtUnitStreamConverter}.
+ * The eTrice converter calls System.exit, thus it runs in a separate Java process and a failure is detected by its exit value.
+ * It writes the xml reports next to the etunit files, therefore the etunit files are linked into the output directory if it is set.
+ */
+public abstract class EtUnitConvertWorker implements WorkAction<EtUnitConvertParameters> {
+	
+	static final String ETUNIT_CONVERTER_MAIN = "org.eclipse.etrice.etunit.converter.EtUnitReportConverter";
+	
+	private final ExecOperations execOperations;
+	
+	@Inject
+	public EtUnitConvertWorker(ExecOperations execOperations) {
+		this.execOperations = execOperations;
+	}
+	
+	@Override
+	public void execute() {
+		WorkerMetrics metrics = new WorkerMetrics();
+		metrics.setQueueWait(System.currentTimeMillis() - getParameters().getSubmitTime().get());
+		boolean builtIn = EtUnitConvertTask.CONVERTER_BUILT_IN.equals(getParameters().getConverter().get());
+		metrics.setWorkerSpawned(!builtIn || WorkerMetrics.start());
+		long runStart = System.nanoTime();
+		try {
+			if(builtIn)
+				convertBuiltIn(getParameters().getReportFiles().get(), getParameters().getXmlFiles().get());
+			else
+				convertExternal(getParameters().getReportFiles().get(), getParameters().getXmlFiles().get());
+		}
+		finally {
+			metrics.setRunTime(GenerationMetrics.millisSince(runStart));
+			metrics.write(getParameters().getMetricsFile().get().getAsFile());
+		}
+	}
+	
+	/**
+	 * Converts the etunit files with the built-in converter.
+	 * 
+	 * @param reportFiles the etunit files
+	 * @param xmlFiles the xml files to write in the same order
+	 */
+	private void convertBuiltIn(List<File> reportFiles, List<File> xmlFiles) {
+		EtUnitStreamConverter converter = new EtUnitStreamConverter(getParameters().getOptions().get(), getParameters().getWorkingDir().get().getAsFile());
+		try {
+			converter.convert(reportFiles, xmlFiles);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Converts the etunit files with the eTrice converter in a single Java process.
+	 * If an xml file is not next to its etunit file, the etunit file is linked next to the xml file, so that the converter writes the xml file directly.
+	 * A copy is only made if the file system does not support links.
+	 * With the {@value EtUnitConvertTask#OPTION_ONLY_COMBINED} option, the converter writes only the combined report.
+	 * 
+	 * @param reportFiles the etunit files
+	 * @param xmlFiles the xml files to write in the same order
+	 */
+	private void convertExternal(List<File> reportFiles, List<File> xmlFiles) {
+		List<String> options = getParameters().getOptions().get();
+		boolean onlyCombined = options.contains(EtUnitConvertTask.OPTION_ONLY_COMBINED);
+		List<Path> convertedFiles = new ArrayList<>();
+		List<Path> linkedFiles = new ArrayList<>();
+		try {
+			for(int i = 0; i < reportFiles.size(); i++) {
+				Path reportFile = reportFiles.get(i).toPath();
+				Path linkedFile = xmlFiles.get(i).toPath().resolveSibling(reportFile.getFileName());
+				if(onlyCombined || linkedFile.equals(reportFile)) {
+					convertedFiles.add(reportFile);
+					continue;
+				}
+				Files.createDirectories(linkedFile.getParent());
+				Files.deleteIfExists(linkedFile);
+				try {
+					Files.createLink(linkedFile, reportFile);
+				}
+				catch(IOException | UnsupportedOperationException e) {
+					Files.copy(reportFile, linkedFile);
+				}
+				linkedFiles.add(linkedFile);
+				convertedFiles.add(linkedFile);
+			}
+			
+			ExecResult result = execOperations.javaexec(spec -> {
+				spec.classpath(getParameters().getClasspath());
+				spec.getMainClass().set(ETUNIT_CONVERTER_MAIN);
+				spec.setWorkingDir(getParameters().getWorkingDir().get().getAsFile());
+				spec.args(options);
+				convertedFiles.forEach(file -> spec.args(file.toAbsolutePath().toString()));
+				spec.setIgnoreExitValue(true);
+			});
+			if(result.getExitValue() != 0)
+				throw new GradleException("etunit conversion failed with exit value " + result.getExitValue());
+			
+			if(onlyCombined)
+				return;
+			for(int i = 0; i < xmlFiles.size(); i++) {
+				if(!xmlFiles.get(i).isFile())
+					throw new GradleException("etunit converter did not create a report for " + reportFiles.get(i));
+			}
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		finally {
+			linkedFiles.forEach(file -> file.toFile().delete());
+		}
+	}
+	
+}
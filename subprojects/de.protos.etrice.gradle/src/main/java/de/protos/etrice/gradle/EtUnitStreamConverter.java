@@ -0,0 +1,279 @@
+package de.protos.etrice.gradle;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Converts etunit reports to JUnit xml reports with constant memory use.
+ * The report is read line by line twice: The first pass counts the test cases and failures of each test suite,
+ * the second pass writes the xml elements through a StAX writer.
+ * Only the failures of the current test case are kept in memory.
+ * Like the eTrice converter, the test suites of all reports can additionally be combined into a single xml report.
+ */
+class EtUnitStreamConverter {
+	
+	/** the option that replaces the names of the test suites */
+	public static final String OPTION_SUITE = "-suite";
+	
+	private static final String REPORT_HEADER = "etUnit report";
+	private static final Pattern SUITE_START = Pattern.compile("ts start: (.*)");
+	private static final Pattern CASE_START = Pattern.compile("tc start (\\d+): (.*)");
+	private static final Pattern CASE_FAIL = Pattern.compile("tc fail (\\d+): #(.*?)#(.*?)#(.*?)#(.*)");
+	private static final Pattern CASE_END = Pattern.compile("tc end (\\d+): (\\d+)");
+	
+	private final String suiteName;
+	private final File combinedFile;
+	private final boolean onlyCombined;
+	
+	/**
+	 * @param options the converter options, {@value #OPTION_SUITE}, {@value EtUnitConvertTask#OPTION_COMBINED}
+	 * and {@value EtUnitConvertTask#OPTION_ONLY_COMBINED} are supported
+	 * @param workingDir the directory that a relative path of the combined report is resolved against
+	 * @throws IllegalArgumentException if an option is not supported
+	 */
+	public EtUnitStreamConverter(List<String> options, File workingDir) {
+		String suite = null;
+		File combined = null;
+		boolean only = false;
+		for(Iterator<String> it = options.iterator(); it.hasNext();) {
+			String option = it.next();
+			if(OPTION_SUITE.equals(option) && it.hasNext())
+				suite = it.next();
+			else if(EtUnitConvertTask.OPTION_COMBINED.equals(option) && it.hasNext())
+				combined = workingDir.toPath().resolve(it.next()).toFile();
+			else if(EtUnitConvertTask.OPTION_ONLY_COMBINED.equals(option))
+				only = true;
+			else
+				throw new IllegalArgumentException("option '" + option + "' is not supported by the built-in etunit converter");
+		}
+		suiteName = suite;
+		combinedFile = combined;
+		onlyCombined = only;
+	}
+	
+	/**
+	 * Converts etunit reports and writes the combined report if the {@value EtUnitConvertTask#OPTION_COMBINED} option is set.
+	 * 
+	 * @param reportFiles the etunit reports
+	 * @param xmlFiles the xml reports to write in the same order, they are not written with the {@value EtUnitConvertTask#OPTION_ONLY_COMBINED} option
+	 * @throws IOException if the files cannot be read or written
+	 * @throws IllegalArgumentException if a file is not an etunit report
+	 */
+	public void convert(List<File> reportFiles, List<File> xmlFiles) throws IOException {
+		if(!onlyCombined) {
+			for(int i = 0; i < reportFiles.size(); i++)
+				write(Collections.singletonList(reportFiles.get(i)), xmlFiles.get(i));
+		}
+		if(combinedFile != null)
+			write(reportFiles, combinedFile);
+	}
+	
+	/**
+	 * Writes the test suites of etunit reports to a single xml report.
+	 * 
+	 * @param reportFiles the etunit reports
+	 * @param xmlFile the xml report to write
+	 * @throws IOException if the files cannot be read or written
+	 * @throws IllegalArgumentException if a file is not an etunit report
+	 */
+	private void write(List<File> reportFiles, File xmlFile) throws IOException {
+		Files.createDirectories(xmlFile.getParentFile().toPath());
+		try(OutputStream out = Files.newOutputStream(xmlFile.toPath())) {
+			XMLStreamWriter writer = XMLOutputFactory.newFactory().createXMLStreamWriter(out, "UTF-8");
+			writer.writeStartDocument("UTF-8", "1.0");
+			newLine(writer, 0);
+			writer.writeStartElement("testsuites");
+			for(File reportFile : reportFiles)
+				writeSuites(writer, reportFile);
+			endElement(writer, 0);
+			writer.writeEndDocument();
+			writer.close();
+		}
+		catch(XMLStreamException e) {
+			throw new IOException("could not write " + xmlFile, e);
+		}
+	}
+	
+	/**
+	 * Writes the test suites of an etunit report.
+	 * 
+	 * @param writer the writer of the xml report
+	 * @param reportFile the etunit report
+	 */
+	private void writeSuites(XMLStreamWriter writer, File reportFile) throws IOException, XMLStreamException {
+		List<Suite> suites = countSuites(reportFile);
+		try(BufferedReader reader = Files.newBufferedReader(reportFile.toPath(), StandardCharsets.UTF_8)) {
+			Iterator<Suite> suiteIterator = suites.iterator();
+			Suite suite = null;
+			TestCase testCase = null;
+			String line;
+			while((line = reader.readLine()) != null) {
+				Matcher matcher;
+				if((matcher = SUITE_START.matcher(line)).matches()) {
+					writeIncompleteTestCase(writer, suite, testCase);
+					testCase = null;
+					if(suite != null)
+						endElement(writer, 1);
+					suite = suiteIterator.next();
+					newLine(writer, 1);
+					writer.writeStartElement("testsuite");
+					writer.writeAttribute("name", suite.name);
+					writer.writeAttribute("tests", String.valueOf(suite.tests));
+					writer.writeAttribute("failures", String.valueOf(suite.failures));
+					writer.writeAttribute("errors", String.valueOf(suite.errors));
+					writer.writeAttribute("time", toSeconds(suite.time));
+				}
+				else if(suite != null && (matcher = CASE_START.matcher(line)).matches()) {
+					writeIncompleteTestCase(writer, suite, testCase);
+					testCase = new TestCase(matcher.group(1), matcher.group(2));
+				}
+				else if(testCase != null && (matcher = CASE_FAIL.matcher(line)).matches() && testCase.id.equals(matcher.group(1))) {
+					testCase.failures.add(new String[] { matcher.group(2), matcher.group(3), matcher.group(4), matcher.group(5) });
+				}
+				else if(testCase != null && (matcher = CASE_END.matcher(line)).matches() && testCase.id.equals(matcher.group(1))) {
+					writeTestCase(writer, suite.name, testCase, Long.parseLong(matcher.group(2)), false);
+					testCase = null;
+				}
+			}
+			writeIncompleteTestCase(writer, suite, testCase);
+			if(suite != null)
+				endElement(writer, 1);
+		}
+	}
+	
+	/**
+	 * Reads the report once to determine the attributes of the test suites.
+	 * 
+	 * @param reportFile the etunit report
+	 * @return the test suites in order of appearance
+	 */
+	private List<Suite> countSuites(File reportFile) throws IOException {
+		List<Suite> suites = new ArrayList<>();
+		try(BufferedReader reader = Files.newBufferedReader(reportFile.toPath(), StandardCharsets.UTF_8)) {
+			String line = reader.readLine();
+			if(line == null || !line.startsWith(REPORT_HEADER))
+				throw new IllegalArgumentException(reportFile + " is not an etunit report");
+			Suite suite = null;
+			String testCase = null;
+			boolean failed = false;
+			while((line = reader.readLine()) != null) {
+				Matcher matcher;
+				if((matcher = SUITE_START.matcher(line)).matches()) {
+					if(testCase != null)
+						suite.errors++;
+					testCase = null;
+					suite = new Suite(suiteName != null ? suiteName : matcher.group(1));
+					suites.add(suite);
+				}
+				else if(suite != null && (matcher = CASE_START.matcher(line)).matches()) {
+					if(testCase != null)
+						suite.errors++;
+					testCase = matcher.group(1);
+					failed = false;
+					suite.tests++;
+				}
+				else if(testCase != null && (matcher = CASE_FAIL.matcher(line)).matches() && testCase.equals(matcher.group(1))) {
+					if(!failed)
+						suite.failures++;
+					failed = true;
+				}
+				else if(testCase != null && (matcher = CASE_END.matcher(line)).matches() && testCase.equals(matcher.group(1))) {
+					suite.time += Long.parseLong(matcher.group(2));
+					testCase = null;
+				}
+			}
+			if(testCase != null)
+				suite.errors++;
+		}
+		return suites;
+	}
+	
+	/**
+	 * Writes a test case that has been started but not ended as error, e.g. because the test crashed.
+	 */
+	private static void writeIncompleteTestCase(XMLStreamWriter writer, Suite suite, TestCase testCase) throws XMLStreamException {
+		if(testCase != null)
+			writeTestCase(writer, suite.name, testCase, 0, true);
+	}
+	
+	private static void writeTestCase(XMLStreamWriter writer, String suiteName, TestCase testCase, long time, boolean incomplete) throws XMLStreamException {
+		boolean empty = testCase.failures.isEmpty() && !incomplete;
+		newLine(writer, 2);
+		if(empty)
+			writer.writeEmptyElement("testcase");
+		else
+			writer.writeStartElement("testcase");
+		writer.writeAttribute("name", testCase.name);
+		writer.writeAttribute("classname", suiteName);
+		writer.writeAttribute("time", toSeconds(time));
+		if(empty)
+			return;
+		for(String[] failure : testCase.failures) {
+			newLine(writer, 3);
+			writer.writeStartElement("failure");
+			writer.writeAttribute("message", failure[3]);
+			writer.writeCharacters("expected: " + failure[0] + ", actual: " + failure[1] + ", location: " + failure[2]);
+			writer.writeEndElement();
+		}
+		if(incomplete) {
+			newLine(writer, 3);
+			writer.writeEmptyElement("error");
+			writer.writeAttribute("message", "test case did not end");
+		}
+		endElement(writer, 2);
+	}
+	
+	private static void endElement(XMLStreamWriter writer, int depth) throws XMLStreamException {
+		newLine(writer, depth);
+		writer.writeEndElement();
+	}
+	
+	private static void newLine(XMLStreamWriter writer, int depth) throws XMLStreamException {
+		StringBuilder indent = new StringBuilder("\n");
+		for(int i = 0; i < depth; i++)
+			indent.append("  ");
+		writer.writeCharacters(indent.toString());
+	}
+	
+	private static String toSeconds(long millis) {
+		return String.valueOf(millis / 1000.0);
+	}
+	
+	private static class Suite {
+		private final String name;
+		private int tests;
+		private int failures;
+		private int errors;
+		private long time;
+		
+		private Suite(String name) {
+			this.name = name;
+		}
+	}
+	
+	private static class TestCase {
+		private final String id;
+		private final String name;
+		private final List<String[]> failures = new ArrayList<>();
+		
+		private TestCase(String id, String name) {
+			this.id = id;
+			this.name = name;
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+package de.protos.etrice.gradle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Build service that coalesces the generator requests of all generate tasks of a build.
+ * Requests with the same batch key, i.e. the same generator classpath and module, that are waiting
+ * while a batch is executed are collected and executed in order as the next batch by a single worker action.
+ * Therefore, the generator application and its loaded resources are reused across the whole batch.
+ */
+public abstract class GenerateBatchService implements BuildService<BuildServiceParameters.None> {
+	
+	public static final String SERVICE_NAME = "etriceGenerateBatch";
+	
+	private final Map<String, Batcher> batchers = new HashMap<>();
+	
+	/**
+	 * Executes a generator request as part of a batch and blocks until the request has been processed.
+	 * If no batch with the same key is running, the calling thread executes the batch with all pending requests.
+	 * 
+	 * @param key the batch key that identifies requests that can run in the same worker
+	 * @param request the generator request
+	 * @param runner executes a batch of requests in a worker
+	 */
+	public void generate(String key, GeneratorRequest request, Consumer<List<GeneratorRequest>> runner) {
+		Batcher batcher;
+		synchronized(batchers) {
+			batcher = batchers.computeIfAbsent(key, k -> new Batcher());
+		}
+		batcher.generate(request, runner);
+	}
+	
+	/**
+	 * Collects the pending requests for a single batch key.
+	 */
+	private static class Batcher {
+		
+		private final List<Entry> pending = new ArrayList<>();
+		private boolean running = false;
+		
+		public void generate(GeneratorRequest request, Consumer<List<GeneratorRequest>> runner) {
+			Entry entry = new Entry(request);
+			List<Entry> batch;
+			synchronized(this) {
+				pending.add(entry);
+				while(running && !entry.done) {
+					try {
+						wait();
+					}
+					catch(InterruptedException e) {
+						pending.remove(entry);
+						Thread.currentThread().interrupt();
+						throw new GradleException("interrupted while waiting for generator batch", e);
+					}
+				}
+				if(entry.done) {
+					entry.rethrowFailure();
+					return;
+				}
+				running = true;
+				batch = new ArrayList<>(pending);
+				pending.clear();
+			}
+			
+			RuntimeException failure = null;
+			try {
+				runner.accept(batch.stream().map(e -> e.request).collect(Collectors.toList()));
+			}
+			catch(RuntimeException e) {
+				failure = e;
+			}
+			finally {
+				synchronized(this) {
+					for(Entry e : batch) {
+						e.done = true;
+						e.failure = failure;
+					}
+					running = false;
+					notifyAll();
+				}
+			}
+			entry.rethrowFailure();
+		}
+	}
+	
+	/**
+	 * A request and its completion state.
+	 */
+	private static class Entry {
+		
+		private final GeneratorRequest request;
+		private boolean done = false;
+		private RuntimeException failure = null;
+		
+		public Entry(GeneratorRequest request) {
+			this.request = request;
+		}
+		
+		public void rethrowFailure() {
+			if(failure != null)
+				throw failure;
+		}
+	}
+}
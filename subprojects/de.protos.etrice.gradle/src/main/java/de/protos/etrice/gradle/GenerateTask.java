@@ -1,65 +1,195 @@
 package de.protos.etrice.gradle;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 
-import org.gradle.api.JavaVersion;
+import org.gradle.api.GradleException;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.FileType;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
 import org.gradle.api.tasks.SourceTask;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.ChangeType;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
 import org.gradle.workers.WorkQueue;
 import org.gradle.workers.WorkerExecutor;
 
 /**
  * Base task class for generator execution.
+ * The task is cacheable and relocatable, all input files are tracked relative to their roots.
  */
-public abstract class GenerateTask extends SourceTask {
+@CacheableTask
+public abstract class GenerateTask extends SourceTask implements GeneratorWorkerOptions {
 	
 	public static final String OPTION_GENDIR = "genDir";
 	public static final String OPTION_MODELPATH = "modelpath";
 	public static final String OPTION_CLEAN = "clean";
 	public static final String OPTION_LOGLEVEL = "loglevel";
 	
+	public static final String ISOLATION_PROCESS = "process";
+	public static final String ISOLATION_CLASS_LOADER = "classLoader";
+	public static final String ISOLATION_NONE = "none";
+	
+	/** forwards all environment variables to the worker process */
+	public static final List<String> DEFAULT_ENVIRONMENT_ALLOWLIST = Collections.singletonList("*");
+	
+	private final ConfigurableFileCollection stableSource;
 	private final ConfigurableFileCollection classpath;
 	private final Property<String> module;
 	private final DirectoryProperty genDir;
 	private final ConfigurableFileCollection modelpath;
 	private final MapProperty<String, Object> options;
+	private final ConfigurableFileCollection optionFiles;
+	private final Property<Boolean> incremental;
+	private final RegularFileProperty indexFile;
+	private final Property<GenerateBatchService> batchService;
+	private final Property<GenerationMetricsService> metricsService;
+	private final Property<GeneratorWorkerLimitService> workerLimitService;
+	private final DirectoryProperty ownersDir;
+	private final RegularFileProperty manifestFile;
+	private final Property<Boolean> partitioned;
+	private final ListProperty<String> partitions;
+	private final Property<Integer> parallelism;
+	private final Property<String> isolation;
+	private final Property<String> maxHeapSize;
+	private final Property<String> minHeapSize;
+	private final Property<String> garbageCollector;
+	private final ListProperty<String> jvmArgs;
+	private final Property<Boolean> classDataSharing;
+	private final DirectoryProperty classDataSharingDir;
+	private final ListProperty<String> environmentAllowlist;
+	private final Property<Boolean> stableClasspath;
+	private final DirectoryProperty classpathCacheDir;
+	private final Property<Boolean> argumentFile;
 	
 	private final WorkerExecutor executor;
+	private final ProjectLayout layout;
+	private final FileSystemOperations fileSystemOperations;
+	
+	private transient GenerationMetrics metrics;
 	
 	/**
 	 * Creates a new task for a generator.
 	 * 
 	 * @param executor Gradle worker executor
+	 * @param layout Gradle project layout
+	 * @param fileSystemOperations Gradle file system operations
 	 * @param objects Gradle object factory
 	 */
 	@Inject
-	public GenerateTask(WorkerExecutor executor, ObjectFactory objects) {
+	public GenerateTask(WorkerExecutor executor, ProjectLayout layout, FileSystemOperations fileSystemOperations, ObjectFactory objects) {
 		this.executor = executor;
+		this.layout = layout;
+		this.fileSystemOperations = fileSystemOperations;
 		
+		this.stableSource = objects.fileCollection().from((Callable<FileTree>) this::getSource);
 		this.classpath = objects.fileCollection();
 		this.module = objects.property(String.class);
 		this.genDir = objects.directoryProperty();
 		this.modelpath = objects.fileCollection();
 		this.options = objects.mapProperty(String.class, Object.class);
+		this.optionFiles = objects.fileCollection().from(options.map(map -> map.values().stream()
+				.filter(File.class::isInstance).collect(Collectors.toList())));
+		this.incremental = objects.property(Boolean.class).convention(false);
+		this.indexFile = objects.fileProperty();
+		this.batchService = objects.property(GenerateBatchService.class);
+		this.metricsService = objects.property(GenerationMetricsService.class);
+		this.workerLimitService = objects.property(GeneratorWorkerLimitService.class);
+		this.partitioned = objects.property(Boolean.class).convention(false);
+		this.partitions = objects.listProperty(String.class);
+		this.parallelism = objects.property(Integer.class).convention(Runtime.getRuntime().availableProcessors());
+		this.isolation = objects.property(String.class).convention(ISOLATION_PROCESS);
+		this.maxHeapSize = objects.property(String.class);
+		this.minHeapSize = objects.property(String.class);
+		this.garbageCollector = objects.property(String.class);
+		this.jvmArgs = objects.listProperty(String.class);
+		this.classDataSharing = objects.property(Boolean.class).convention(false);
+		this.classDataSharingDir = objects.directoryProperty();
+		this.environmentAllowlist = objects.listProperty(String.class).convention(DEFAULT_ENVIRONMENT_ALLOWLIST);
+		this.stableClasspath = objects.property(Boolean.class).convention(false);
+		this.classpathCacheDir = objects.directoryProperty();
+		this.argumentFile = objects.property(Boolean.class).convention(false);
+		
+		// The owners of the generated files belong to the generated files and are therefore cached with them.
+		this.ownersDir = objects.directoryProperty().value(layout.getBuildDirectory().dir("etrice-manifests/" + getName()));
+		getOutputs().dir(ownersDir).withPropertyName("ownersDir");
+		this.manifestFile = objects.fileProperty().convention(layout.getBuildDirectory().file("etrice-manifests/" + getName() + ".txt"));
 	}
 	
 	/**
-	 * @return all files of the generator classpath
+	 * @return the model files to generate
+	 */
+	@Override
+	@Internal
+	public FileTree getSource() {
+		return super.getSource();
+	}
+	
+	/**
+	 * The source of a {@link SourceTask} is a new file tree on every call,
+	 * but Gradle identifies the incremental changes of an input by the instance of its file collection.
+	 * 
+	 * @return the model files to generate as a file collection that is stable for the lifetime of the task
 	 */
 	@InputFiles
+	@SkipWhenEmpty
+	@IgnoreEmptyDirectories
+	@PathSensitive(PathSensitivity.RELATIVE)
+	public FileCollection getStableSource() {
+		return stableSource;
+	}
+	
+	/**
+	 * @return all files of the generator classpath
+	 */
+	@Classpath
 	public ConfigurableFileCollection getClasspath() {
 		return classpath;
 	}
@@ -75,11 +205,35 @@ public abstract class GenerateTask extends SourceTask {
 	/**
 	 * @return All generator options
 	 */
-	@Input
+	@Internal
 	public MapProperty<String, Object> getOptions() {
 		return options;
 	}
 	
+	/**
+	 * The values of file options are replaced by the names of their files,
+	 * since the absolute paths of the files must not be part of the cache key.
+	 * 
+	 * @return the generator options without the absolute paths of file options
+	 */
+	@Input
+	public Provider<Map<String, Object>> getOptionValues() {
+		return options.map(map -> {
+			Map<String, Object> values = new TreeMap<>();
+			map.forEach((key, value) -> values.put(key, value instanceof File ? ((File) value).getName() : value));
+			return values;
+		});
+	}
+	
+	/**
+	 * @return the files of the file options
+	 */
+	@InputFiles
+	@PathSensitive(PathSensitivity.RELATIVE)
+	public FileCollection getOptionFiles() {
+		return optionFiles;
+	}
+	
 	/**
 	 * @return Directory for generated source files
 	 */
@@ -88,47 +242,659 @@ public abstract class GenerateTask extends SourceTask {
 		return genDir;
 	}
 	
+	/**
+	 * The manifest lists the files of the target directory that were added, changed or deleted by the last execution.
+	 * Each line consists of the type of the change ({@code A}, {@code M} or {@code D}), a tab and the path relative to the target directory.
+	 * 
+	 * @return the manifest of the changed generated files
+	 */
+	@OutputFile
+	public RegularFileProperty getManifestFile() {
+		return manifestFile;
+	}
+	
 	/**
 	 * @return the modelpath for the generator
 	 */
+	@Incremental
 	@InputFiles
+	@PathSensitive(PathSensitivity.RELATIVE)
 	public ConfigurableFileCollection getModelpath() {
 		return modelpath;
 	}
 	
+	/**
+	 * Enables the incremental generation.
+	 * If only model files of the source have changed, just the changed models and the models that depend on them are regenerated.
+	 * Otherwise, all models are regenerated.
+	 * 
+	 * @return whether the generation is incremental, defaults to {@code false}
+	 */
+	@Input
+	public Property<Boolean> getIncremental() {
+		return incremental;
+	}
+	
+	/**
+	 * @return the location of the persistent model index that is used for incremental generation
+	 */
+	@Internal
+	public RegularFileProperty getIndexFile() {
+		return indexFile;
+	}
+	
+	/**
+	 * @return the service that batches the generator requests of this build, runs the generator directly if not set
+	 */
+	@Internal
+	public Property<GenerateBatchService> getBatchService() {
+		return batchService;
+	}
+	
+	/**
+	 * @return the service that collects the metrics of this task execution, no metrics are recorded if not set
+	 */
+	@Internal
+	public Property<GenerationMetricsService> getMetricsService() {
+		return metricsService;
+	}
+	
+	/**
+	 * If the service limits the number of concurrent generator workers, the task submits its generator request
+	 * without waiting for it and the worker transfers the generated files to the target directory.
+	 * Gradle then runs at most as many of these tasks at the same time as the service allows,
+	 * while other tasks continue on the released worker thread.
+	 * Partitioned generation still waits for its workers, since it has to merge their results,
+	 * as well as incremental generation, since it records the generated files of each model.
+	 * 
+	 * @return the service that bounds the number of concurrent generator workers of this build, the task waits for the generator if not set
+	 */
+	@Internal
+	public Property<GeneratorWorkerLimitService> getWorkerLimitService() {
+		return workerLimitService;
+	}
+	
+	/**
+	 * Enables the parallel generation of independent model components.
+	 * The model files are split into components that do not depend on each other and the {@link #getPartitions() explicit partitions}.
+	 * These are distributed to at most {@link #getParallelism()} partitions that are generated in parallel by separate workers.
+	 * The generated files of all partitions are merged into the target directory, a file that is generated with different contents
+	 * by two partitions fails the task.
+	 * 
+	 * @return whether the models are generated in parallel partitions, defaults to {@code false}
+	 */
+	@Input
+	public Property<Boolean> getPartitioned() {
+		return partitioned;
+	}
+	
+	/**
+	 * Each entry is an include pattern relative to the source directories that defines a partition of model files which are generated together.
+	 * The remaining model files are partitioned by their dependencies.
+	 * 
+	 * @return the include patterns of explicit partitions
+	 */
+	@Input
+	public ListProperty<String> getPartitions() {
+		return partitions;
+	}
+	
+	/**
+	 * @return the maximum number of partitions that are generated in parallel, defaults to the number of available processors
+	 */
+	@Internal
+	public Property<Integer> getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * Selects how the generator is isolated from the build:
+	 * <ul>
+	 * <li>{@value #ISOLATION_PROCESS}: runs the generator in a separate worker process with the fork options of this task</li>
+	 * <li>{@value #ISOLATION_CLASS_LOADER}: runs the generator in the build process in a class loader with the generator classpath</li>
+	 * <li>{@value #ISOLATION_NONE}: runs the generator in the build process, the generator must be on the build script classpath</li>
+	 * </ul>
+	 * The in-process modes avoid the startup costs of a worker process, but the generator shares the heap with the build.
+	 * 
+	 * @return the isolation mode of the generator, defaults to {@value #ISOLATION_PROCESS}
+	 */
+	@Internal
+	public Property<String> getIsolation() {
+		return isolation;
+	}
+	
+	/**
+	 * @return the maximum heap size of the worker process, e.g. {@code 2g}, only used in process isolation
+	 */
+	@Internal
+	public Property<String> getMaxHeapSize() {
+		return maxHeapSize;
+	}
+	
+	/**
+	 * @return the initial heap size of the worker process, e.g. {@code 512m}, only used in process isolation
+	 */
+	@Internal
+	public Property<String> getMinHeapSize() {
+		return minHeapSize;
+	}
+	
+	/**
+	 * The garbage collector is selected by the JVM flag {@code -XX:+Use<name>GC}.
+	 * 
+	 * @return the name of the garbage collector of the worker process, e.g. {@code G1} or {@code Parallel}, only used in process isolation
+	 */
+	@Internal
+	public Property<String> getGarbageCollector() {
+		return garbageCollector;
+	}
+	
+	/**
+	 * @return additional JVM arguments of the worker process, only used in process isolation
+	 */
+	@Internal
+	public ListProperty<String> getJvmArgs() {
+		return jvmArgs;
+	}
+	
+	/**
+	 * Lets the worker processes share an archive of the loaded generator classes, see {@link ClassDataSharing}.
+	 * Requires Java 17 or newer, the option is ignored on older JVMs.
+	 * 
+	 * @return whether worker processes use class data sharing, defaults to {@code false}, only used in process isolation
+	 */
+	@Internal
+	public Property<Boolean> getClassDataSharing() {
+		return classDataSharing;
+	}
+	
+	/**
+	 * @return the directory of the class data sharing archives
+	 */
+	@Internal
+	public DirectoryProperty getClassDataSharingDir() {
+		return classDataSharingDir;
+	}
+	
+	/**
+	 * All variables are forwarded by default, like Gradle does for its own worker processes.
+	 * Narrowing the patterns to the variables the generator needs lets builds with slightly different environments,
+	 * e.g. from the IDE and the command line, share the worker processes.
+	 * Patterns may contain {@code *} as a wildcard and are matched ignoring case.
+	 * 
+	 * @return the patterns of the environment variables forwarded to the worker process, defaults to {@link #DEFAULT_ENVIRONMENT_ALLOWLIST},
+	 * only used in process isolation
+	 */
+	@Internal
+	public ListProperty<String> getEnvironmentAllowlist() {
+		return environmentAllowlist;
+	}
+	
+	/**
+	 * Passes content-addressed copies of the generator jars to the worker, see {@link StableClasspath}.
+	 * Rebuilt jars with unchanged content then still reuse the existing workers.
+	 * 
+	 * @return whether the worker gets copies of the generator jars, defaults to {@code false}, not used without isolation
+	 */
+	@Internal
+	public Property<Boolean> getStableClasspath() {
+		return stableClasspath;
+	}
+	
+	/**
+	 * @return the directory of the content-addressed copies of the generator classpath
+	 * @see StableClasspath
+	 */
+	@Internal
+	public DirectoryProperty getClasspathCacheDir() {
+		return classpathCacheDir;
+	}
+	
+	/**
+	 * Passes the command line in a compact {@link GeneratorArguments} file instead of the serialized request.
+	 * The file is streamed by the task and read by the worker, which saves memory and serialization time for huge model sets,
+	 * since each directory of the model files is written only once.
+	 * In incremental or partitioned mode the file also carries the content hashes of the model files.
+	 * 
+	 * @return whether the arguments are passed in an argument file, defaults to {@code false}
+	 */
+	@Internal
+	public Property<Boolean> getArgumentFile() {
+		return argumentFile;
+	}
+	
 	/**
 	 * Executes the generator with the configured arguments.
+	 * 
+	 * @param inputChanges the changes of the inputs since the last execution
 	 */
 	@TaskAction
-	protected void generate() {
-		// Assemble the command line arguments
-		String[] args = collectArguments();
-		
-		// Submit the request to a worker process that runs the generator.
- 		WorkQueue queue = executor.processIsolation(spec -> {
-			// Since Gradle version 7.6, the Gradle worker api copies the jars on the classpath to a cache to
-			// avoid file locks on the actual files, see https://github.com/gradle/gradle/pull/21475.
-			// This also results in a new worker process if the files on the classpath are modified because the
-			// file paths of the transformed classpath change every time the actual files are modified.
- 			spec.getClasspath().from(getClasspath());
-			spec.forkOptions(forkOptions -> {
-				// Environment variables are not forwarded to worker processes by default,
-				// see https://github.com/gradle/gradle/issues/8030.
-				// This breaks for example Files.createTempFile and Files.createTempDirectory on Windows.
-				// Therefore, we explicitly forward all environment variables to the worker process here.
-				forkOptions.environment(System.getenv());
-				// The following JVM flag allows to run older eTrice versions (which use Xtext 2.25) with Java 17+
-				// and silences illegal reflective access warnings that appear since Java 9+.
-				// The issue originates in old versions of guice which was updated in more recent Xtext versions, 
-				// see https://github.com/google/guice/issues/1085.
-				if(JavaVersion.current().isJava9Compatible()) {
-					forkOptions.jvmArgs("--add-opens", "java.base/java.lang=ALL-UNNAMED");
+	protected void generate(InputChanges inputChanges) {
+		metrics = new GenerationMetrics(getPath(), GenerateTask.class.getSimpleName());
+		boolean failed = true;
+		try {
+			generateModels(inputChanges);
+			failed = false;
+		}
+		finally {
+			metrics.finish(failed);
+			if(metricsService.isPresent())
+				metricsService.get().record(metrics);
+		}
+	}
+	
+	/**
+	 * Generates all models or, in incremental mode, only the changed models and their dependents.
+	 * 
+	 * @param inputChanges the changes of the inputs since the last execution
+	 */
+	private void generateModels(InputChanges inputChanges) {
+		File ownersFile = ownersDir.file("generated-file-owners.txt").get().getAsFile();
+		Path projectPath = layout.getProjectDirectory().getAsFile().toPath();
+		Set<File> sourceFiles = getSource().getFiles();
+		if(!incremental.get()) {
+			ownersFile.delete();
+			generateFiles(sourceFiles, false, null, Collections.emptyList());
+			return;
+		}
+		
+		File indexFile = resolveIndexFile();
+		ModelIndex previousIndex = ModelIndex.load(indexFile);
+		ModelIndex index = updateIndex(previousIndex, sourceFiles);
+		
+		GeneratedFileOwners previousOwners = GeneratedFileOwners.read(ownersFile, projectPath);
+		Set<String> modelpathNamespaces = null;
+		if(inputChanges.isIncremental() && previousOwners != null) {
+			modelpathNamespaces = getChangedModelpathNamespaces(inputChanges, sourceFiles, previousOwners, previousIndex, index);
+		}
+		ModelImportGraph graph = new ModelImportGraph(index);
+		GeneratedFileOwners owners;
+		if(modelpathNamespaces == null) {
+			ownersFile.delete();
+			owners = GeneratedFileOwners.create(sourceFiles, graph, generateFiles(sourceFiles, false, graph, Collections.emptyList()));
+		}
+		else {
+			owners = generateIncrementally(inputChanges, sourceFiles, graph, previousOwners, modelpathNamespaces);
+		}
+		owners.write(ownersFile, projectPath);
+	}
+	
+	/**
+	 * Updates the persistent model index with the model files of the source and the modelpath.
+	 * The models of archives on the modelpath are taken from the pre-built indices of the archives.
+	 * 
+	 * @param previousIndex the index of the last execution
+	 * @param sourceFiles the current model files to generate
+	 * @return the updated index
+	 */
+	private ModelIndex updateIndex(ModelIndex previousIndex, Set<File> sourceFiles) {
+		long start = System.nanoTime();
+		Set<File> modelFiles = new HashSet<>(sourceFiles);
+		modelFiles.addAll(ModelIndex.getModelFiles(getModelpath()));
+		ModelIndex index = previousIndex.update(modelFiles).merge(ModelIndex.loadArchives(getModelpath()));
+		index.save(resolveIndexFile());
+		metrics.addIndexTime(GenerationMetrics.millisSince(start));
+		return index;
+	}
+	
+	/**
+	 * @return the configured index file or a file in the temporary directory of this task
+	 */
+	private File resolveIndexFile() {
+		return indexFile.isPresent() ? indexFile.get().getAsFile() : new File(getTemporaryDir(), "model-index.bin");
+	}
+	
+	/**
+	 * Regenerates the changed models, the models that depend on them and the other models of their namespaces.
+	 * The generated files that are owned by the regenerated and removed models only are deleted unless they are generated again.
+	 * 
+	 * @param inputChanges the changes of the inputs since the last execution
+	 * @param sourceFiles the current model files to generate
+	 * @param graph the dependency graph of the current model files and the model files on the modelpath
+	 * @param previousOwners the namespaces and generated files of the model files of the last execution
+	 * @param modelpathNamespaces the namespaces of changed models on the modelpath
+	 * @return the namespaces and generated files of the current model files
+	 */
+	private GeneratedFileOwners generateIncrementally(InputChanges inputChanges, Set<File> sourceFiles, ModelImportGraph graph,
+			GeneratedFileOwners previousOwners, Set<String> modelpathNamespaces) {
+		Set<File> changedFiles = new HashSet<>();
+		for(FileChange change : inputChanges.getFileChanges(getStableSource())) {
+			if(change.getFileType() == FileType.FILE && change.getChangeType() != ChangeType.REMOVED)
+				changedFiles.add(change.getFile());
+		}
+		Set<File> removedFiles = new HashSet<>(previousOwners.getModels());
+		removedFiles.removeAll(sourceFiles);
+		
+		Set<String> changedNamespaces = new HashSet<>(modelpathNamespaces);
+		for(File file : changedFiles) {
+			changedNamespaces.add(previousOwners.getNamespace(file));
+		}
+		for(File file : removedFiles) {
+			changedNamespaces.add(previousOwners.getNamespace(file));
+		}
+		changedNamespaces.remove(null);
+		Set<File> affectedFiles = graph.getDependents(changedFiles, changedNamespaces);
+		affectedFiles.retainAll(sourceFiles);
+		
+		// The files of a namespace directory cannot be attributed to a single model, so all models of the namespace are regenerated together.
+		Set<String> affectedNamespaces = new HashSet<>();
+		for(File file : affectedFiles) {
+			affectedNamespaces.add(graph.getNamespace(file));
+			affectedNamespaces.add(previousOwners.getNamespace(file));
+		}
+		for(File file : removedFiles) {
+			affectedNamespaces.add(previousOwners.getNamespace(file));
+		}
+		affectedNamespaces.remove(null);
+		for(File file : sourceFiles) {
+			if(affectedNamespaces.contains(graph.getNamespace(file)) || affectedNamespaces.contains(previousOwners.getNamespace(file)))
+				affectedFiles.add(file);
+		}
+		
+		Set<File> obsoleteModels = new HashSet<>(affectedFiles);
+		obsoleteModels.addAll(removedFiles);
+		File genDirFile = genDir.get().getAsFile();
+		List<File> obsoleteFiles = previousOwners.getObsoleteFiles(obsoleteModels).stream()
+			.map(path -> new File(genDirFile, path))
+			.collect(Collectors.toList());
+		
+		getLogger().info("Regenerating {} of {} models", affectedFiles.size(), sourceFiles.size());
+		List<String> stagedFiles = generateFiles(affectedFiles, true, graph, obsoleteFiles);
+		return previousOwners.update(sourceFiles, affectedFiles, graph, stagedFiles);
+	}
+	
+	/**
+	 * Determines the namespaces of the changed model files on the modelpath that are not part of the source.
+	 * 
+	 * @param inputChanges the changes of the inputs since the last execution
+	 * @param sourceFiles the current model files to generate
+	 * @param previousOwners the namespaces and generated files of the model files of the last execution
+	 * @param previousIndex the model index of the last execution
+	 * @param index the current model index
+	 * @return the namespaces of the changed models or {@code null} if a change cannot be attributed to a namespace, e.g. a changed archive without index
+	 */
+	private Set<String> getChangedModelpathNamespaces(InputChanges inputChanges, Set<File> sourceFiles,
+			GeneratedFileOwners previousOwners, ModelIndex previousIndex, ModelIndex index) {
+		Set<String> namespaces = new HashSet<>();
+		for(FileChange change : inputChanges.getFileChanges(getModelpath())) {
+			File file = change.getFile();
+			if(change.getFileType() == FileType.DIRECTORY || sourceFiles.contains(file) || previousOwners.getModels().contains(file))
+				continue;
+			if(!ModelIndex.isModelFile(file)) {
+				// Only archives with a pre-built index can be attributed to namespaces, other files in model directories are irrelevant.
+				if(getModelpath().contains(file)) {
+					Set<String> archiveNamespaces = index.getChangedNamespaces(previousIndex, file);
+					if(archiveNamespaces == null)
+						return null;
+					namespaces.addAll(archiveNamespaces);
 				}
-			});
+				continue;
+			}
+			String previousNamespace = previousIndex.getNamespace(file);
+			String namespace = index.getNamespace(file);
+			if(previousNamespace == null && namespace == null)
+				return null;
+			if(previousNamespace != null)
+				namespaces.add(previousNamespace);
+			if(namespace != null)
+				namespaces.add(namespace);
+		}
+		return namespaces;
+	}
+	
+	/**
+	 * Runs the generator for the passed model files.
+	 * The generator writes to a staging directory, afterwards only the files whose content differs are transferred to the target directory.
+	 * 
+	 * @param files the model files to generate
+	 * @param incremental keeps all existing generated files except for the obsolete files if true,
+	 * otherwise all existing generated files are obsolete if the clean option is set
+	 * @param graph the dependency graph of the model files or {@code null} if it has not been created yet
+	 * @param obsoleteFiles the generated files that are deleted if they are not generated again
+	 * @return the paths of the generated files relative to the target directory, separated by {@code /},
+	 * or {@code null} if the files are transferred by the worker
+	 */
+	private List<String> generateFiles(Collection<File> files, boolean incremental, ModelImportGraph graph, Collection<File> obsoleteFiles) {
+		File stagingDir = new File(getTemporaryDir(), "staging");
+		fileSystemOperations.delete(spec -> spec.delete(stagingDir));
+		stagingDir.mkdirs();
+		
+		metrics.setInputFiles(files.size());
+		boolean cleanGenDir = !incremental && Boolean.TRUE.equals(options.get().get(OPTION_CLEAN));
+		if(!files.isEmpty()) {
+			List<Set<File>> partitionFiles = Collections.singletonList(new LinkedHashSet<>(files));
+			if(partitioned.get()) {
+				if(graph == null)
+					graph = new ModelImportGraph(updateIndex(ModelIndex.load(resolveIndexFile()), getSource().getFiles()));
+				partitionFiles = partitionFiles(files, graph);
+			}
+			if(partitionFiles.size() > 1) {
+				generatePartitions(partitionFiles, stagingDir, graph);
+			}
+			else if(!this.incremental.get() && workerLimitService.isPresent() && workerLimitService.get().isLimited()) {
+				submitFiles(files, stagingDir, graph, cleanGenDir, obsoleteFiles);
+				return null;
+			}
+			else {
+				generateFiles(files, stagingDir, graph);
+			}
+		}
+		
+		Path genDirPath = genDir.get().getAsFile().toPath();
+		if(cleanGenDir) {
+			obsoleteFiles = GeneratedFileSync.listFiles(genDirPath);
+		}
+		List<File> stagedFiles = GeneratedFileSync.listFiles(stagingDir.toPath());
+		metrics.addOutputFiles(stagedFiles.size(), stagedFiles.stream().mapToLong(File::length).sum());
+		List<String> stagedPaths = stagedFiles.stream()
+			.map(file -> stagingDir.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/'))
+			.collect(Collectors.toList());
+		long syncStart = System.nanoTime();
+		GeneratedFileSync sync = GeneratedFileSync.sync(stagingDir.toPath(), genDirPath, obsoleteFiles);
+		sync.writeManifest(manifestFile.get().getAsFile());
+		metrics.addSyncTime(GenerationMetrics.millisSince(syncStart));
+		metrics.addWrittenFiles(sync.getAdded().size() + sync.getChanged().size());
+		getLogger().info("Generated files: {} added, {} changed, {} deleted", sync.getAdded().size(), sync.getChanged().size(), sync.getRemoved().size());
+		return stagedPaths;
+	}
+	
+	/**
+	 * Runs the generator for the passed model files in a single request.
+	 * 
+	 * @param files the model files to generate
+	 * @param targetDir the directory for the generated files
+	 * @param graph the dependency graph of the model files or {@code null} if it has not been created
+	 */
+	private void generateFiles(Collection<File> files, File targetDir, ModelImportGraph graph) {
+		File failureFile = new File(getTemporaryDir(), "failure.txt");
+		File metricsFile = new File(getTemporaryDir(), "metrics.properties");
+		File argumentsFile = new File(getTemporaryDir(), "arguments.bin");
+		failureFile.delete();
+		metricsFile.delete();
+		GeneratorRequest request = createRequest(files, targetDir, graph, argumentsFile, failureFile, metricsFile);
+		
+		// Run the request together with the requests of other generate tasks that use the same generator.
+		if(batchService.isPresent()) {
+			batchService.get().generate(getBatchKey(), request, this::runBatch);
+		}
+		else {
+			runBatch(Collections.singletonList(request));
+		}
+		metrics.addWorkItem(metricsFile);
+		GeneratorRequest.rethrowFailures(Collections.singletonList(request));
+	}
+	
+	/**
+	 * Submits the passed model files in a single request without waiting for the generator.
+	 * The request bypasses the batch service, since a batch would block the tasks of the other requests.
+	 * The worker transfers the generated files to the target directory, writes the manifest and fails if the generator fails.
+	 * The metrics of the request, including the time until the worker completed it, are added to the task metrics at the end of the build.
+	 * 
+	 * @param files the model files to generate
+	 * @param stagingDir the directory for the generated files
+	 * @param graph the dependency graph of the model files or {@code null} if it has not been created
+	 * @param cleanGenDir whether all existing generated files are obsolete
+	 * @param obsoleteFiles the generated files that are deleted if they are not generated again
+	 */
+	private void submitFiles(Collection<File> files, File stagingDir, ModelImportGraph graph, boolean cleanGenDir, Collection<File> obsoleteFiles) {
+		File failureFile = new File(getTemporaryDir(), "failure.txt");
+		File metricsFile = new File(getTemporaryDir(), "metrics.properties");
+		File argumentsFile = new File(getTemporaryDir(), "arguments.bin");
+		failureFile.delete();
+		metricsFile.delete();
+		GeneratorRequest request = createRequest(files, stagingDir, graph, argumentsFile, failureFile, metricsFile);
+		
+		createWorkQueue(executor, metrics).submit(GeneratorWorker.class, params -> {
+			params.getModule().set(module);
+			params.getWorkerSpawnReason().set(metrics.getWorkerSpawnReason());
+			params.getRequests().set(Collections.singletonList(request));
+			params.getStagingDir().set(stagingDir);
+			params.getTargetDir().set(genDir);
+			params.getObsoleteFiles().set(obsoleteFiles);
+			params.getCleanTargetDir().set(cleanGenDir);
+			params.getManifestFile().set(manifestFile);
 		});
+		metrics.addPendingWorkItem(metricsFile);
+	}
+	
+	/**
+	 * Distributes model files to partitions that can be generated independently.
+	 * Explicit partitions and the components of the dependency graph are assigned to at most {@link #getParallelism()} partitions,
+	 * the largest first to the partition with the smallest total file size.
+	 * 
+	 * @param files the model files to generate
+	 * @param graph the dependency graph of the model files
+	 * @return the non-empty partitions in a deterministic order
+	 */
+	private List<Set<File>> partitionFiles(Collection<File> files, ModelImportGraph graph) {
+		List<Set<File>> units = new ArrayList<>();
+		Set<File> remaining = new TreeSet<>(files);
+		for(String pattern : partitions.get()) {
+			Set<File> unit = new TreeSet<>(getSource().matching(patterns -> patterns.include(pattern)).getFiles());
+			unit.retainAll(remaining);
+			if(!unit.isEmpty()) {
+				remaining.removeAll(unit);
+				units.add(unit);
+			}
+		}
+		units.addAll(graph.getComponents(remaining));
+		
+		Map<Set<File>, Long> sizes = new HashMap<>();
+		units.forEach(unit -> sizes.put(unit, unit.stream().mapToLong(File::length).sum()));
+		units.sort(Comparator.comparing((Set<File> unit) -> sizes.get(unit)).reversed()
+			.thenComparing(unit -> unit.iterator().next()));
+		
+		int count = Math.max(1, Math.min(parallelism.get(), units.size()));
+		List<Set<File>> result = new ArrayList<>();
+		long[] resultSizes = new long[count];
+		for(int i = 0; i < count; i++) {
+			result.add(new TreeSet<>());
+		}
+		for(Set<File> unit : units) {
+			int smallest = 0;
+			for(int i = 1; i < count; i++) {
+				if(resultSizes[i] < resultSizes[smallest])
+					smallest = i;
+			}
+			result.get(smallest).addAll(unit);
+			resultSizes[smallest] += sizes.get(unit);
+		}
+		return result;
+	}
+	
+	/**
+	 * Generates each partition in parallel into its own staging directory and merges the generated files into the target directory.
+	 * The requests bypass the batch service, since a batch is executed sequentially by a single worker.
+	 * 
+	 * @param partitionFiles the model files of each partition
+	 * @param targetDir the directory for the generated files
+	 * @param graph the dependency graph of the model files
+	 */
+	private void generatePartitions(List<Set<File>> partitionFiles, File targetDir, ModelImportGraph graph) {
+		getLogger().info("Generating {} partitions in parallel", partitionFiles.size());
+		File stagingDir = new File(getTemporaryDir(), "partitions");
+		fileSystemOperations.delete(spec -> spec.delete(stagingDir));
+		
+		List<File> partitionDirs = new ArrayList<>();
+		List<GeneratorRequest> requests = new ArrayList<>();
+		List<File> metricsFiles = new ArrayList<>();
+		WorkQueue queue = createWorkQueue(executor, metrics);
+		for(int i = 0; i < partitionFiles.size(); i++) {
+			File partitionDir = new File(stagingDir, String.valueOf(i));
+			File failureFile = new File(stagingDir, "failure-" + i + ".txt");
+			File metricsFile = new File(stagingDir, "metrics-" + i + ".properties");
+			partitionDir.mkdirs();
+			partitionDirs.add(partitionDir);
+			metricsFiles.add(metricsFile);
+			File argumentsFile = new File(stagingDir, "arguments-" + i + ".bin");
+			GeneratorRequest request = createRequest(partitionFiles.get(i), partitionDir, graph, argumentsFile, failureFile, metricsFile);
+			requests.add(request);
+			queue.submit(GeneratorWorker.class, params -> {
+				params.getModule().set(module);
+				params.getWorkerSpawnReason().set(metrics.getWorkerSpawnReason());
+				params.getRequests().set(Collections.singletonList(request));
+			});
+		}
+		queue.await();
+		metricsFiles.forEach(metrics::addWorkItem);
+		GeneratorRequest.rethrowFailures(requests);
+		
+		mergePartitions(partitionDirs, targetDir.toPath());
+	}
+	
+	/**
+	 * Copies the generated files of all partitions to the target directory.
+	 * A file that is generated by several partitions must have the same content in all of them.
+	 * 
+	 * @param partitionDirs the staging directories of the partitions in order
+	 * @param targetDir the target directory
+	 * @throws GradleException if partitions generated different files with the same path
+	 */
+	private static void mergePartitions(List<File> partitionDirs, Path targetDir) {
+		// relative path of a generated file -> staging directory of the first partition that generated it
+		Map<Path, Path> mergedFiles = new TreeMap<>();
+		Set<String> conflicts = new TreeSet<>();
+		try {
+			for(File partitionDir : partitionDirs) {
+				Path partitionPath = partitionDir.toPath();
+				List<Path> files;
+				try(Stream<Path> stream = Files.walk(partitionPath)) {
+					files = stream.filter(Files::isRegularFile).map(partitionPath::relativize).collect(Collectors.toList());
+				}
+				for(Path file : files) {
+					Path previousPartitionPath = mergedFiles.putIfAbsent(file, partitionPath);
+					if(previousPartitionPath != null
+							&& !Arrays.equals(Files.readAllBytes(previousPartitionPath.resolve(file)), Files.readAllBytes(partitionPath.resolve(file)))) {
+						conflicts.add(file + " (partitions " + previousPartitionPath.getFileName() + " and " + partitionPath.getFileName() + ")");
+					}
+				}
+			}
+			if(!conflicts.isEmpty()) {
+				throw new GradleException("Partitions generated different files with the same path:\n" + String.join("\n", conflicts));
+			}
+			for(Entry<Path, Path> entry : mergedFiles.entrySet()) {
+				Path target = targetDir.resolve(entry.getKey());
+				Files.createDirectories(target.getParent());
+				Files.copy(entry.getValue().resolve(entry.getKey()), target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Runs a batch of generator requests in a worker process.
+	 * 
+	 * @param requests the generator requests of the batch
+	 */
+	private void runBatch(List<GeneratorRequest> requests) {
+		// Submit the requests to a worker process that runs the generator.
+		WorkQueue queue = createWorkQueue(executor, metrics);
 		queue.submit(GeneratorWorker.class, params -> {
 			params.getModule().set(module);
-			params.getArgs().set(args);
+			params.getWorkerSpawnReason().set(metrics.getWorkerSpawnReason());
+			params.getRequests().set(requests);
 		});
 		
 		// Wait for the worker process to complete the code generation.
@@ -140,23 +906,56 @@ public abstract class GenerateTask extends SourceTask {
 	}
 	
 	/**
-	 * Assembles the command line arguments for the generator using the source file collection and options map.
+	 * Identifies generate tasks whose requests can be executed by the same worker.
+	 * 
+	 * @return a key composed of the generator module and the fingerprint of the worker
+	 * @see GeneratorWorkerOptions#createFingerprint()
+	 */
+	private String getBatchKey() {
+		return module.get() + '\n' + createFingerprint().getKey();
+	}
+	
+	/**
+	 * Creates a generator request that either contains the command line or refers to an argument file.
+	 * 
+	 * @param files the model files to generate
+	 * @param genDir the target directory for the generated files
+	 * @param graph the dependency graph that provides the content hashes of the model files or {@code null}
+	 * @param argumentsFile the file to write the arguments to if {@link #getArgumentFile()} is set
+	 * @param failureFile the file the worker writes the failure to
+	 * @param metricsFile the file the worker writes the metrics to
+	 * @return the new request
+	 */
+	private GeneratorRequest createRequest(Collection<File> files, File genDir, ModelImportGraph graph,
+			File argumentsFile, File failureFile, File metricsFile) {
+		if(!argumentFile.get()) {
+			return new GeneratorRequest(collectArguments(files, genDir), failureFile, metricsFile);
+		}
+		List<String> args = new ArrayList<>();
+		addOptions(args);
+		GeneratorArguments.write(argumentsFile, genDir, getModelpath().getFiles(), args, files, file -> graph != null ? graph.getHash(file) : null);
+		return new GeneratorRequest(argumentsFile, failureFile, metricsFile);
+	}
+	
+	/**
+	 * Assembles the command line arguments for the generator using the model files and options map.
+	 * The clean option is omitted, since the generator writes to an empty staging directory.
 	 * 
+	 * @param files the model files to generate
+	 * @param genDir the target directory for the generated files
 	 * @return the command line arguments for the generator
 	 */
-	private String[] collectArguments() {
+	private String[] collectArguments(Iterable<File> files, File genDir) {
 		LinkedList<String> args = new LinkedList<>();
 		
-		addArgument(args, OPTION_GENDIR, getGenDir().get().getAsFile());
+		addArgument(args, OPTION_GENDIR, genDir);
 		if(!getModelpath().isEmpty()) {
 			addArgument(args, OPTION_MODELPATH, getModelpath().getAsPath());
 		}
 		
-		for(Entry<String, Object> entry: getOptions().get().entrySet()) {
-			addArgument(args, entry.getKey(), entry.getValue());
-		}
+		addOptions(args);
 		
-		for(File f : getSource()) {
+		for(File f : files) {
 			args.add(f.getPath());
 		}
 		
@@ -164,6 +963,19 @@ public abstract class GenerateTask extends SourceTask {
 		return args.toArray(argsArr);
 	}
 	
+	/**
+	 * Adds the options of the options map except for the clean option to an argument list.
+	 * 
+	 * @param args the argument list
+	 */
+	private void addOptions(List<String> args) {
+		for(Entry<String, Object> entry: getOptions().get().entrySet()) {
+			if(OPTION_CLEAN.equals(entry.getKey()))
+				continue;
+			addArgument(args, entry.getKey(), entry.getValue());
+		}
+	}
+	
 	/**
 	 * Adds an option specified by its key and value to an argument list. 
 	 * 
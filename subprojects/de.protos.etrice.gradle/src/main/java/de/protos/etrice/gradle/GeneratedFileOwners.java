@@ -0,0 +1,196 @@
+package de.protos.etrice.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The namespaces and the generated files of the model files of an incremental generate task.
+ * A generated file is owned by the models that may have generated it:
+ * The generator places the files of a model in the directory of its namespace, so a file in the directory of a namespace
+ * is owned by the models of that namespace that were generated together, any other file by all models that were generated together.
+ * Incremental generation always regenerates all models of a namespace together,
+ * thus the files of a namespace directory are attributed to all models that can have generated them.
+ * A generated file is obsolete if all its owners are regenerated or removed and it is not generated again.
+ * Files of the target directory that are not owned by any model are never deleted by incremental generation.
+ */
+class GeneratedFileOwners {
+	
+	private final Map<File, String> namespaces = new HashMap<>();
+	private final Map<File, Set<String>> generatedFiles = new HashMap<>();
+	
+	/**
+	 * Attributes the files of a full generation to the generated models.
+	 * 
+	 * @param models the generated model files
+	 * @param graph the dependency graph that provides the namespaces of the model files
+	 * @param stagedFiles the paths of the generated files relative to the target directory, separated by {@code /}
+	 * @return the owners of the generated files
+	 */
+	public static GeneratedFileOwners create(Collection<File> models, ModelImportGraph graph, Collection<String> stagedFiles) {
+		GeneratedFileOwners owners = new GeneratedFileOwners();
+		owners.attribute(models, graph, stagedFiles);
+		return owners;
+	}
+	
+	/**
+	 * Reads the owners of the last execution.
+	 * 
+	 * @param file the file to read
+	 * @param projectDir the directory the paths of the model files are relative to
+	 * @return the owners or {@code null} if the file does not exist
+	 */
+	public static GeneratedFileOwners read(File file, Path projectDir) {
+		if(!file.isFile())
+			return null;
+		GeneratedFileOwners owners = new GeneratedFileOwners();
+		try {
+			Set<String> modelFiles = null;
+			for(String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+				int index = line.indexOf('\t');
+				if(index == 0 && modelFiles != null) {
+					modelFiles.add(line.substring(1));
+				}
+				else if(index > 0) {
+					File model = projectDir.resolve(line.substring(0, index)).normalize().toFile();
+					owners.namespaces.put(model, index + 1 < line.length() ? line.substring(index + 1) : null);
+					modelFiles = new TreeSet<>();
+					owners.generatedFiles.put(model, modelFiles);
+				}
+			}
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return owners;
+	}
+	
+	/**
+	 * Writes the owners of this execution.
+	 * Each model is written as its path relative to the project directory, a tab and its namespace,
+	 * followed by a line for each of its generated files that consists of a tab and the path relative to the target directory.
+	 * 
+	 * @param file the file to write to
+	 * @param projectDir the directory the paths of the model files are relative to
+	 */
+	public void write(File file, Path projectDir) {
+		Map<String, File> sortedModels = new TreeMap<>();
+		namespaces.keySet().forEach(model -> sortedModels.put(relativize(projectDir, model.toPath()).toString(), model));
+		List<String> lines = new ArrayList<>();
+		sortedModels.forEach((path, model) -> {
+			String namespace = namespaces.get(model);
+			lines.add(path + '\t' + (namespace != null ? namespace : ""));
+			generatedFiles.get(model).forEach(generatedFile -> lines.add('\t' + generatedFile));
+		});
+		try {
+			Files.createDirectories(file.toPath().getParent());
+			Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * @return the model files of the last execution
+	 */
+	public Set<File> getModels() {
+		return Collections.unmodifiableSet(namespaces.keySet());
+	}
+	
+	/**
+	 * @param model a model file
+	 * @return the namespace of the model file in the last execution or {@code null} if it had none or was not generated
+	 */
+	public String getNamespace(File model) {
+		return namespaces.get(model);
+	}
+	
+	/**
+	 * Collects the generated files that are owned by the passed models only.
+	 * 
+	 * @param models the regenerated and removed model files
+	 * @return the paths of the files relative to the target directory
+	 */
+	public Set<String> getObsoleteFiles(Set<File> models) {
+		Set<String> candidates = new TreeSet<>();
+		Set<String> keptFiles = new HashSet<>();
+		generatedFiles.forEach((model, files) -> (models.contains(model) ? candidates : keptFiles).addAll(files));
+		candidates.removeAll(keptFiles);
+		return candidates;
+	}
+	
+	/**
+	 * Creates the owners after an incremental generation.
+	 * The unaffected models keep their files, the files of the regenerated models are attributed again and the removed models are dropped.
+	 * 
+	 * @param sourceFiles the current model files
+	 * @param models the regenerated model files
+	 * @param graph the dependency graph that provides the namespaces of the model files
+	 * @param stagedFiles the paths of the files generated for the regenerated models relative to the target directory, separated by {@code /}
+	 * @return the updated owners
+	 */
+	public GeneratedFileOwners update(Set<File> sourceFiles, Collection<File> models, ModelImportGraph graph, Collection<String> stagedFiles) {
+		GeneratedFileOwners owners = create(models, graph, stagedFiles);
+		for(File model : sourceFiles) {
+			if(!owners.namespaces.containsKey(model) && namespaces.containsKey(model)) {
+				owners.namespaces.put(model, namespaces.get(model));
+				owners.generatedFiles.put(model, generatedFiles.get(model));
+			}
+		}
+		return owners;
+	}
+	
+	/**
+	 * @param models the generated model files
+	 * @param graph the dependency graph that provides the namespaces of the model files
+	 * @param stagedFiles the paths of the generated files relative to the target directory
+	 */
+	private void attribute(Collection<File> models, ModelImportGraph graph, Collection<String> stagedFiles) {
+		Map<String, List<File>> modelsByDir = new HashMap<>();
+		for(File model : models) {
+			String namespace = graph.getNamespace(model);
+			namespaces.put(model, namespace);
+			generatedFiles.put(model, new TreeSet<>());
+			if(namespace != null)
+				modelsByDir.computeIfAbsent(namespace.replace('.', '/'), k -> new ArrayList<>()).add(model);
+		}
+		for(String stagedFile : stagedFiles) {
+			int index = stagedFile.lastIndexOf('/');
+			List<File> owners = modelsByDir.get(index != -1 ? stagedFile.substring(0, index) : "");
+			for(File owner : owners != null ? owners : models) {
+				generatedFiles.get(owner).add(stagedFile);
+			}
+		}
+	}
+	
+	/**
+	 * Constructs the relative path between two paths if possible.
+	 * 
+	 * @param base the base path
+	 * @param path the path to relativize
+	 * @return the relative path or the path itself if both paths have different roots
+	 */
+	private static Path relativize(Path base, Path path) {
+		try {
+			return base.relativize(path);
+		}
+		catch(IllegalArgumentException e) {
+			return path;
+		}
+	}
+	
+}
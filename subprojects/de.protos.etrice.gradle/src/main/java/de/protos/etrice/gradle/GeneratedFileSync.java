@@ -0,0 +1,172 @@
+package de.protos.etrice.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Transfers generated files from a staging directory to the target directory.
+ * Only files whose content differs are written, so the modification times of unchanged files are preserved
+ * and downstream compilation stays incremental.
+ */
+class GeneratedFileSync {
+	
+	private static final int BUFFER_SIZE = 8192;
+	
+	private final Set<String> added = new TreeSet<>();
+	private final Set<String> changed = new TreeSet<>();
+	private final Set<String> removed = new TreeSet<>();
+	
+	/**
+	 * Moves the staged files to the target directory and deletes obsolete files.
+	 * 
+	 * @param stagingDir the directory that contains the generated files
+	 * @param targetDir the target directory
+	 * @param obsoleteFiles files in the target directory that are deleted if they have not been generated again
+	 * @return the changes of the target directory
+	 */
+	public static GeneratedFileSync sync(Path stagingDir, Path targetDir, Collection<File> obsoleteFiles) {
+		GeneratedFileSync sync = new GeneratedFileSync();
+		try {
+			Set<Path> stagedFiles = new TreeSet<>();
+			if(Files.isDirectory(stagingDir)) {
+				try(Stream<Path> stream = Files.walk(stagingDir)) {
+					stream.filter(Files::isRegularFile).map(stagingDir::relativize).forEach(stagedFiles::add);
+				}
+			}
+			for(Path file : stagedFiles) {
+				Path source = stagingDir.resolve(file);
+				Path target = targetDir.resolve(file);
+				if(!Files.exists(target)) {
+					Files.createDirectories(target.getParent());
+					Files.move(source, target);
+					sync.added.add(toString(file));
+				}
+				else if(!contentEquals(source, target)) {
+					Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+					sync.changed.add(toString(file));
+				}
+			}
+			for(File obsoleteFile : obsoleteFiles) {
+				Path file = targetDir.relativize(obsoleteFile.toPath());
+				if(!stagedFiles.contains(file) && Files.deleteIfExists(obsoleteFile.toPath())) {
+					sync.removed.add(toString(file));
+					deleteEmptyParents(obsoleteFile.toPath().getParent(), targetDir);
+				}
+			}
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return sync;
+	}
+	
+	/**
+	 * @param dir any directory
+	 * @return all regular files in the directory and its subdirectories
+	 */
+	public static List<File> listFiles(Path dir) {
+		if(!Files.isDirectory(dir))
+			return new ArrayList<>();
+		try(Stream<Path> stream = Files.walk(dir)) {
+			return stream.filter(Files::isRegularFile).map(Path::toFile).collect(Collectors.toList());
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Writes the changes to a manifest file.
+	 * Each line consists of the type of the change ({@code A} added, {@code M} modified, {@code D} deleted),
+	 * a tab and the path of the file relative to the target directory.
+	 * 
+	 * @param manifestFile the file to write to
+	 */
+	public void writeManifest(File manifestFile) {
+		List<String> lines = new ArrayList<>();
+		added.forEach(file -> lines.add("A\t" + file));
+		changed.forEach(file -> lines.add("M\t" + file));
+		removed.forEach(file -> lines.add("D\t" + file));
+		try {
+			Files.createDirectories(manifestFile.toPath().getParent());
+			Files.write(manifestFile.toPath(), lines, StandardCharsets.UTF_8);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * @return the relative paths of the added files
+	 */
+	public Set<String> getAdded() {
+		return added;
+	}
+	
+	/**
+	 * @return the relative paths of the files whose content has changed
+	 */
+	public Set<String> getChanged() {
+		return changed;
+	}
+	
+	/**
+	 * @return the relative paths of the deleted files
+	 */
+	public Set<String> getRemoved() {
+		return removed;
+	}
+	
+	private static boolean contentEquals(Path file1, Path file2) throws IOException {
+		if(Files.size(file1) != Files.size(file2))
+			return false;
+		try(InputStream in1 = Files.newInputStream(file1); InputStream in2 = Files.newInputStream(file2)) {
+			byte[] buffer1 = new byte[BUFFER_SIZE];
+			byte[] buffer2 = new byte[BUFFER_SIZE];
+			int length;
+			while((length = in1.read(buffer1)) != -1) {
+				int offset = 0;
+				while(offset < length) {
+					int read = in2.read(buffer2, offset, length - offset);
+					if(read == -1)
+						return false;
+					offset += read;
+				}
+				for(int i = 0; i < length; i++) {
+					if(buffer1[i] != buffer2[i])
+						return false;
+				}
+			}
+			return in2.read() == -1;
+		}
+	}
+	
+	private static void deleteEmptyParents(Path dir, Path targetDir) throws IOException {
+		while(dir != null && !dir.equals(targetDir) && dir.startsWith(targetDir)) {
+			try(Stream<Path> stream = Files.list(dir)) {
+				if(stream.findAny().isPresent())
+					return;
+			}
+			Files.delete(dir);
+			dir = dir.getParent();
+		}
+	}
+	
+	private static String toString(Path relativePath) {
+		return relativePath.toString().replace(File.separatorChar, '/');
+	}
+
+}
@@ -0,0 +1,225 @@
+package de.protos.etrice.gradle;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+/**
+ * Metrics of a single execution of a generate or etunit convert task.
+ * Times are measured in milliseconds.
+ */
+public class GenerationMetrics {
+	
+	private static final Logger LOGGER = Logging.getLogger(GenerationMetrics.class);
+	
+	private final String taskPath;
+	private final String taskType;
+	private final long startTime = System.nanoTime();
+	private final long startTimeMillis = System.currentTimeMillis();
+	
+	private boolean failed = true;
+	private int inputFiles;
+	private int outputFiles;
+	private long outputBytes;
+	private int writtenFiles;
+	private int workItems;
+	private int workersSpawned;
+	private int workersReused;
+	private int applicationsCreated;
+	private int cacheHits;
+	private int cacheEvictions;
+	private int workerRecycles;
+	private long retainedHeap;
+	private long queueWait;
+	private long initTime;
+	private long startupTime;
+	private long startupSaved;
+	private long runTime;
+	private long indexTime;
+	private long syncTime;
+	private long totalTime;
+	private String workerSpawnReason;
+	private final Set<String> workerSpawnReasons = new LinkedHashSet<>();
+	private final List<File> pendingWorkItems = new ArrayList<>();
+	
+	/**
+	 * Starts the measurement of a task execution.
+	 * 
+	 * @param taskPath the path of the task
+	 * @param taskType the simple name of the task type
+	 */
+	public GenerationMetrics(String taskPath, String taskType) {
+		this.taskPath = taskPath;
+		this.taskType = taskType;
+	}
+	
+	/**
+	 * Adds the metrics that a worker has written for a work item.
+	 * 
+	 * @param metricsFile the metrics file of the work item, ignored if it does not exist
+	 */
+	void addWorkItem(File metricsFile) {
+		WorkerMetrics metrics = WorkerMetrics.read(metricsFile);
+		if(metrics == null)
+			return;
+		workItems++;
+		if(metrics.isWorkerSpawned()) {
+			workersSpawned++;
+			if(metrics.getWorkerSpawnReason() != null) {
+				workerSpawnReasons.add(metrics.getWorkerSpawnReason());
+				LOGGER.info("{} spawned a new generator worker: {}", taskPath, metrics.getWorkerSpawnReason());
+			}
+		}
+		else
+			workersReused++;
+		if(metrics.isApplicationCreated())
+			applicationsCreated++;
+		else
+			cacheHits++;
+		cacheEvictions += metrics.getCacheEvictions();
+		if(metrics.isRecycled())
+			workerRecycles++;
+		retainedHeap = Math.max(retainedHeap, metrics.getRetainedHeap());
+		queueWait += metrics.getQueueWait();
+		initTime += metrics.getInitTime();
+		startupTime += metrics.getStartupTime();
+		startupSaved += metrics.getStartupSaved();
+		runTime += metrics.getRunTime();
+		outputFiles += metrics.getOutputFiles();
+		outputBytes += metrics.getOutputBytes();
+		writtenFiles += metrics.getWrittenFiles();
+		syncTime += metrics.getSyncTime();
+		if(metrics.getCompletionTime() > 0)
+			totalTime = Math.max(totalTime, metrics.getCompletionTime() - startTimeMillis);
+		if(metrics.isFailed())
+			failed = true;
+	}
+	
+	/**
+	 * Registers a work item that is still running when the task action returns.
+	 * Its metrics are added when the report is created at the end of the build,
+	 * the total time then extends to the completion of the work item.
+	 * 
+	 * @param metricsFile the metrics file of the work item
+	 */
+	void addPendingWorkItem(File metricsFile) {
+		pendingWorkItems.add(metricsFile);
+	}
+	
+	/**
+	 * @return the reason why the work items of the last work queue of the task might not reuse an existing worker
+	 */
+	String getWorkerSpawnReason() {
+		return workerSpawnReason;
+	}
+	
+	/**
+	 * The reason is passed to the worker, which records it in the metrics of the work item that spawns it.
+	 * A work item of a batch may thus report it to another task.
+	 * 
+	 * @param workerSpawnReason the reason why the work items of the next work queue of the task might not reuse an existing worker
+	 * @see WorkerFingerprint
+	 */
+	void setWorkerSpawnReason(String workerSpawnReason) {
+		this.workerSpawnReason = workerSpawnReason;
+	}
+	
+	/**
+	 * @param inputFiles the number of input files processed by the task
+	 */
+	public void setInputFiles(int inputFiles) {
+		this.inputFiles = inputFiles;
+	}
+	
+	/**
+	 * Adds produced files, including files that have the same content as before.
+	 * 
+	 * @param files the number of files
+	 * @param bytes the total size of the files
+	 */
+	public void addOutputFiles(int files, long bytes) {
+		outputFiles += files;
+		outputBytes += bytes;
+	}
+	
+	/**
+	 * @param writtenFiles the number of files that have been written to the output directory
+	 */
+	public void addWrittenFiles(int writtenFiles) {
+		this.writtenFiles += writtenFiles;
+	}
+	
+	/**
+	 * @param indexTime the time to update the model index
+	 */
+	public void addIndexTime(long indexTime) {
+		this.indexTime += indexTime;
+	}
+	
+	/**
+	 * @param syncTime the time to transfer the generated files to the output directory
+	 */
+	public void addSyncTime(long syncTime) {
+		this.syncTime += syncTime;
+	}
+	
+	/**
+	 * Stops the measurement.
+	 * 
+	 * @param failed whether the task execution failed
+	 */
+	public void finish(boolean failed) {
+		this.failed = failed;
+		totalTime = Math.max(totalTime, millisSince(startTime));
+	}
+	
+	/**
+	 * @param nanoTime a start time of {@link System#nanoTime()}
+	 * @return the elapsed milliseconds
+	 */
+	public static long millisSince(long nanoTime) {
+		return (System.nanoTime() - nanoTime) / 1_000_000;
+	}
+	
+	/**
+	 * @return the metrics by name in the column order of the report
+	 */
+	public Map<String, Object> toMap() {
+		pendingWorkItems.forEach(this::addWorkItem);
+		pendingWorkItems.clear();
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("task", taskPath);
+		map.put("type", taskType);
+		map.put("failed", failed);
+		map.put("inputFiles", inputFiles);
+		map.put("outputFiles", outputFiles);
+		map.put("outputBytes", outputBytes);
+		map.put("writtenFiles", writtenFiles);
+		map.put("workItems", workItems);
+		map.put("workersSpawned", workersSpawned);
+		map.put("workersReused", workersReused);
+		map.put("applicationsCreated", applicationsCreated);
+		map.put("cacheHits", cacheHits);
+		map.put("cacheEvictions", cacheEvictions);
+		map.put("workerRecycles", workerRecycles);
+		map.put("retainedHeapBytes", retainedHeap);
+		map.put("queueWaitMillis", queueWait);
+		map.put("initMillis", initTime);
+		map.put("workerStartupMillis", startupTime);
+		map.put("startupSavedMillis", startupSaved);
+		map.put("runMillis", runTime);
+		map.put("indexMillis", indexTime);
+		map.put("syncMillis", syncTime);
+		map.put("totalMillis", totalTime);
+		map.put("workerSpawnReasons", String.join(" | ", workerSpawnReasons));
+		return map;
+	}
+	
+}
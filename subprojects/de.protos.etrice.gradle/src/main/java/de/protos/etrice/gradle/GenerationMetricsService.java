@@ -0,0 +1,121 @@
+package de.protos.etrice.gradle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Build service that collects the {@link GenerationMetrics} of all generate and etunit convert tasks of a build.
+ * When the build finishes, the metrics are written to {@value #JSON_REPORT} and {@value #CSV_REPORT} in the report directory.
+ */
+public abstract class GenerationMetricsService implements BuildService<GenerationMetricsService.Parameters>, AutoCloseable {
+	
+	public static final String SERVICE_NAME = "etriceGenerationMetrics";
+	
+	public static final String JSON_REPORT = "generation-metrics.json";
+	public static final String CSV_REPORT = "generation-metrics.csv";
+	
+	/**
+	 * The parameters of the metrics service.
+	 */
+	public interface Parameters extends BuildServiceParameters {
+		/**
+		 * @return the directory the reports are written to
+		 */
+		DirectoryProperty getReportDir();
+	}
+	
+	private final List<GenerationMetrics> metrics = new ArrayList<>();
+	
+	/**
+	 * @param taskMetrics the metrics of a finished task execution
+	 */
+	public void record(GenerationMetrics taskMetrics) {
+		synchronized(metrics) {
+			metrics.add(taskMetrics);
+		}
+	}
+	
+	/**
+	 * Writes the reports if any task has been recorded.
+	 */
+	@Override
+	public void close() {
+		List<Map<String, Object>> rows;
+		synchronized(metrics) {
+			rows = metrics.stream().map(GenerationMetrics::toMap).collect(Collectors.toList());
+		}
+		if(rows.isEmpty())
+			return;
+		Path reportDir = getParameters().getReportDir().get().getAsFile().toPath();
+		try {
+			Files.createDirectories(reportDir);
+			writeJson(reportDir.resolve(JSON_REPORT), rows);
+			writeCsv(reportDir.resolve(CSV_REPORT), rows);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private static void writeJson(Path file, List<Map<String, Object>> rows) throws IOException {
+		try(Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("{\n  \"tasks\": [");
+			for(Iterator<Map<String, Object>> it = rows.iterator(); it.hasNext();) {
+				writer.write("\n    {");
+				writer.write(it.next().entrySet().stream()
+					.map(entry -> quote(entry.getKey()) + ": " + (entry.getValue() instanceof String ? quote((String) entry.getValue()) : entry.getValue()))
+					.collect(Collectors.joining(", ")));
+				writer.write(it.hasNext() ? "}," : "}");
+			}
+			writer.write("\n  ]\n}\n");
+		}
+	}
+	
+	private static void writeCsv(Path file, List<Map<String, Object>> rows) throws IOException {
+		try(Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write(String.join(",", rows.get(0).keySet()));
+			writer.write('\n');
+			for(Map<String, Object> row : rows) {
+				writer.write(row.values().stream().map(value -> quoteCsv(String.valueOf(value))).collect(Collectors.joining(",")));
+				writer.write('\n');
+			}
+		}
+	}
+	
+	/**
+	 * @param str a csv field
+	 * @return the field, enclosed in double quotes if it contains a separator or quote
+	 */
+	private static String quoteCsv(String str) {
+		if(str.indexOf(',') == -1 && str.indexOf('"') == -1 && str.indexOf('\n') == -1)
+			return str;
+		return '"' + str.replace("\"", "\"\"") + '"';
+	}
+	
+	private static String quote(String str) {
+		StringBuilder builder = new StringBuilder("\"");
+		for(char c : str.toCharArray()) {
+			if(c == '"' || c == '\\')
+				builder.append('\\').append(c);
+			else if(c < 0x20)
+				builder.append(String.format("\\u%04x", (int) c));
+			else
+				builder.append(c);
+		}
+		return builder.append('"').toString();
+	}
+	
+}
@@ -0,0 +1,213 @@
+package de.protos.etrice.gradle;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.eclipse.etrice.generator.base.GeneratorApplication;
+import org.gradle.api.GradleException;
+
+/**
+ * Bounded cache of the generator applications of a worker.
+ * For each generator module the cache holds a pool of independent applications, which are created on demand up to {@value #POOL_SIZE_PROPERTY}.
+ * A work item leases an application exclusively, so that several work items in the same class loader can generate concurrently
+ * and share the loaded classes, if all applications of a module are leased, the next work item waits for one to be released.
+ * At most {@value #CACHE_SIZE_PROPERTY} modules are kept, the pool of the least recently used module is evicted first.
+ * When an application is released, the heap that survived the last garbage collection is measured.
+ * If it exceeds {@value #RETAINED_HEAP_LIMIT_PROPERTY} percent of the maximum heap, the pools of all other modules are evicted.
+ * If there are no other modules, the worker is recycled: the idle and the released applications of the module are discarded,
+ * so that the memory of the generator is released and the next work item starts with a fresh generator application.
+ * The limits are read from system properties of the worker JVM, e.g. set by the {@code jvmArgs} of a model source.
+ */
+class GeneratorApplicationCache {
+	
+	/** the system property for the maximum number of generator modules whose applications are cached */
+	public static final String CACHE_SIZE_PROPERTY = "etrice.generator.cacheSize";
+	/** the system property for the maximum number of applications of a generator module */
+	public static final String POOL_SIZE_PROPERTY = "etrice.generator.poolSize";
+	/** the system property for the retained heap in percent of the maximum heap that triggers eviction */
+	public static final String RETAINED_HEAP_LIMIT_PROPERTY = "etrice.generator.retainedHeapLimit";
+	
+	private static final int DEFAULT_CACHE_SIZE = 4;
+	private static final int DEFAULT_RETAINED_HEAP_LIMIT = 80;
+	
+	/**
+	 * The applications of a generator module.
+	 */
+	private static class Pool {
+		final Deque<GeneratorApplication> idle = new ArrayDeque<>();
+		/** the number of idle, leased and reserved applications */
+		int size;
+	}
+	
+	private final int maxSize;
+	private final int poolSize;
+	private final long retainedHeapLimit;
+	private final LinkedHashMap<String, Pool> pools = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<GeneratorApplication, Pool> leases = new IdentityHashMap<>();
+	
+	/**
+	 * Creates a cache with the limits of the system properties.
+	 */
+	public GeneratorApplicationCache() {
+		this(Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE),
+			Integer.getInteger(POOL_SIZE_PROPERTY, Runtime.getRuntime().availableProcessors()),
+			Integer.getInteger(RETAINED_HEAP_LIMIT_PROPERTY, DEFAULT_RETAINED_HEAP_LIMIT));
+	}
+	
+	/**
+	 * Creates a cache.
+	 * 
+	 * @param maxSize the maximum number of cached generator modules, at least 1
+	 * @param poolSize the maximum number of applications per generator module, at least 1
+	 * @param retainedHeapLimit the retained heap in percent of the maximum heap that triggers eviction
+	 * @throws IllegalArgumentException if a limit is out of range
+	 */
+	public GeneratorApplicationCache(int maxSize, int poolSize, int retainedHeapLimit) {
+		if(maxSize < 1)
+			throw new IllegalArgumentException(CACHE_SIZE_PROPERTY + " must be at least 1, but is " + maxSize);
+		if(poolSize < 1)
+			throw new IllegalArgumentException(POOL_SIZE_PROPERTY + " must be at least 1, but is " + poolSize);
+		if(retainedHeapLimit < 1 || retainedHeapLimit > 100)
+			throw new IllegalArgumentException(RETAINED_HEAP_LIMIT_PROPERTY + " must be between 1 and 100, but is " + retainedHeapLimit);
+		this.maxSize = maxSize;
+		this.poolSize = poolSize;
+		this.retainedHeapLimit = Runtime.getRuntime().maxMemory() / 100 * retainedHeapLimit;
+	}
+	
+	/**
+	 * Leases an idle application of a generator, creates a new one if the pool is not full or waits for an application to be released.
+	 * The application must be {@link #release(GeneratorApplication, WorkerMetrics) released} after use.
+	 * 
+	 * @param name the module name of the generator
+	 * @param factory creates an application, called without holding the lock of the cache
+	 * @param metrics records whether the application was created and the evictions
+	 * @return the leased generator application
+	 * @throws GradleException if the thread is interrupted while waiting
+	 */
+	public GeneratorApplication acquire(String name, Function<String, GeneratorApplication> factory, WorkerMetrics metrics) {
+		Pool pool;
+		synchronized(this) {
+			while(true) {
+				pool = pools.get(name);
+				if(pool == null) {
+					pool = new Pool();
+					pools.put(name, pool);
+					evictEldest(metrics);
+				}
+				GeneratorApplication application = pool.idle.poll();
+				if(application != null) {
+					leases.put(application, pool);
+					metrics.setApplicationCreated(false);
+					return application;
+				}
+				if(pool.size < poolSize)
+					break;
+				try {
+					wait();
+				}
+				catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new GradleException("Interrupted while waiting for a generator application of " + name, e);
+				}
+			}
+			pool.size++;
+		}
+		
+		// Creating the application takes long, other work items may acquire and release applications meanwhile.
+		GeneratorApplication application = null;
+		try {
+			application = factory.apply(name);
+		}
+		finally {
+			synchronized(this) {
+				if(application != null)
+					leases.put(application, pool);
+				else
+					pool.size--;
+				notifyAll();
+			}
+		}
+		metrics.setApplicationCreated(true);
+		return application;
+	}
+	
+	/**
+	 * Returns a leased application to its pool and evicts applications if the retained heap exceeds the limit.
+	 * 
+	 * @param application the application returned by {@link #acquire(String, Function, WorkerMetrics)}
+	 * @param metrics records the retained heap, the evictions and whether the worker was recycled
+	 */
+	public synchronized void release(GeneratorApplication application, WorkerMetrics metrics) {
+		Pool pool = leases.remove(application);
+		boolean cached = pool != null && pools.containsValue(pool);
+		long retainedHeap = getRetainedHeap();
+		metrics.setRetainedHeap(retainedHeap);
+		if(retainedHeap > retainedHeapLimit && cached) {
+			boolean others = false;
+			for(Iterator<Pool> it = pools.values().iterator(); it.hasNext();) {
+				Pool other = it.next();
+				if(other != pool) {
+					metrics.addCacheEvictions(other.idle.size());
+					it.remove();
+					others = true;
+				}
+			}
+			if(!others) {
+				metrics.addCacheEvictions(pool.idle.size() + 1);
+				metrics.setRecycled(true);
+				pool.size -= pool.idle.size();
+				pool.idle.clear();
+				cached = false;
+			}
+		}
+		if(cached)
+			pool.idle.push(application);
+		else if(pool != null)
+			pool.size--;
+		notifyAll();
+		if(metrics.isRecycled()) {
+			// Release the memory of the generator now instead of during the next run.
+			System.gc();
+		}
+	}
+	
+	/**
+	 * Evicts the pools of the least recently used modules that exceed the size of the cache.
+	 * Leased applications of an evicted pool are discarded when they are released.
+	 * 
+	 * @param metrics records the evictions
+	 */
+	private void evictEldest(WorkerMetrics metrics) {
+		Iterator<Pool> eldest = pools.values().iterator();
+		while(pools.size() > maxSize) {
+			metrics.addCacheEvictions(eldest.next().idle.size());
+			eldest.remove();
+		}
+	}
+	
+	/**
+	 * @return the used heap after the last garbage collection or the currently used heap if the JVM does not report it
+	 */
+	static long getRetainedHeap() {
+		long retainedHeap = 0;
+		boolean reported = false;
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			MemoryUsage usage = pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported() ? pool.getCollectionUsage() : null;
+			if(usage != null) {
+				retainedHeap += usage.getUsed();
+				reported = true;
+			}
+		}
+		return reported ? retainedHeap : Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+	}
+
+}
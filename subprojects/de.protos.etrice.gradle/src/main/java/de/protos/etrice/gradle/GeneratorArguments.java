@@ -0,0 +1,193 @@
+package de.protos.etrice.gradle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Compact argument file that replaces the command line of a {@link GeneratorRequest}.
+ * The task streams the options, the modelpath and the model files with their content hashes to the file
+ * and the worker assembles the command line from it, so that the absolute paths of huge model sets are not serialized with the request.
+ * Model files are stored by the index of their directory and their name, each directory is written only once.
+ * Strings are stored as their length followed by their UTF-8 bytes, so they are not limited in length.
+ */
+class GeneratorArguments {
+	
+	/** the version of the binary format */
+	public static final int VERSION = 2;
+	
+	private static final int MAGIC = 0x45544741;
+	private static final int END = -1;
+	
+	private final File genDir;
+	private final List<File> modelpath;
+	private final List<String> options;
+	private final Map<File, byte[]> files;
+	
+	private GeneratorArguments(File genDir, List<File> modelpath, List<String> options, Map<File, byte[]> files) {
+		this.genDir = genDir;
+		this.modelpath = modelpath;
+		this.options = options;
+		this.files = files;
+	}
+	
+	/**
+	 * Writes an argument file.
+	 * 
+	 * @param argumentsFile the file to write to
+	 * @param genDir the target directory for the generated files
+	 * @param modelpath the entries of the modelpath
+	 * @param options the remaining options as command line arguments
+	 * @param files the model files to generate
+	 * @param hashes provides the content hash of a model file or {@code null} if it is unknown
+	 */
+	public static void write(File argumentsFile, File genDir, Iterable<File> modelpath, List<String> options,
+			Iterable<File> files, Function<File, byte[]> hashes) {
+		try {
+			Files.createDirectories(argumentsFile.toPath().getParent());
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(argumentsFile.toPath())))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				writeString(out, genDir.getAbsolutePath());
+				for(File entry : modelpath) {
+					out.writeBoolean(true);
+					writeString(out, entry.getAbsolutePath());
+				}
+				out.writeBoolean(false);
+				out.writeInt(options.size());
+				for(String option : options) {
+					writeString(out, option);
+				}
+				
+				// A directory index equal to the number of known directories introduces a new directory.
+				Map<String, Integer> directories = new HashMap<>();
+				for(File file : files) {
+					String directory = file.getParent() != null ? file.getParent() : "";
+					Integer index = directories.get(directory);
+					if(index == null) {
+						index = directories.size();
+						directories.put(directory, index);
+						out.writeInt(index);
+						writeString(out, directory);
+					}
+					else {
+						out.writeInt(index);
+					}
+					writeString(out, file.getName());
+					byte[] hash = hashes.apply(file);
+					out.writeByte(hash != null ? hash.length : 0);
+					if(hash != null)
+						out.write(hash);
+				}
+				out.writeInt(END);
+			}
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Reads an argument file.
+	 * 
+	 * @param argumentsFile the file to read
+	 * @return the arguments of the file
+	 * @throws IllegalArgumentException if the file has an unknown format
+	 */
+	public static GeneratorArguments read(File argumentsFile) {
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(argumentsFile.toPath())))) {
+			if(in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IllegalArgumentException("unknown format of generator argument file " + argumentsFile);
+			File genDir = new File(readString(in));
+			List<File> modelpath = new ArrayList<>();
+			while(in.readBoolean()) {
+				modelpath.add(new File(readString(in)));
+			}
+			List<String> options = new ArrayList<>();
+			for(int i = in.readInt(); i > 0; i--) {
+				options.add(readString(in));
+			}
+			List<File> directories = new ArrayList<>();
+			Map<File, byte[]> files = new LinkedHashMap<>();
+			for(int index = in.readInt(); index != END; index = in.readInt()) {
+				if(index == directories.size())
+					directories.add(new File(readString(in)));
+				File file = new File(directories.get(index), readString(in));
+				byte[] hash = new byte[in.readUnsignedByte()];
+				in.readFully(hash);
+				files.put(file, hash);
+			}
+			return new GeneratorArguments(genDir, modelpath, options, files);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private static void writeString(DataOutputStream out, String str) throws IOException {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * @return the model files to generate in order
+	 */
+	public List<File> getFiles() {
+		return Collections.unmodifiableList(new ArrayList<>(files.keySet()));
+	}
+	
+	/**
+	 * @param file a model file of the arguments
+	 * @return the content hash of the model file or an empty array if it is unknown
+	 */
+	public byte[] getHash(File file) {
+		return files.get(file);
+	}
+	
+	/**
+	 * Assembles the command line in the same order as {@link GenerateTask} does for requests without argument file.
+	 * 
+	 * @return the command line arguments for the generator
+	 */
+	public String[] toArgs() {
+		List<String> args = new ArrayList<>(options.size() + files.size() + 4);
+		args.add("-" + GenerateTask.OPTION_GENDIR);
+		args.add(genDir.getPath());
+		if(!modelpath.isEmpty()) {
+			StringBuilder path = new StringBuilder();
+			for(File entry : modelpath) {
+				if(path.length() > 0)
+					path.append(File.pathSeparatorChar);
+				path.append(entry.getPath());
+			}
+			args.add("-" + GenerateTask.OPTION_MODELPATH);
+			args.add(path.toString());
+		}
+		args.addAll(options);
+		for(File file : files.keySet()) {
+			args.add(file.getPath());
+		}
+		return args.toArray(new String[0]);
+	}
+
+}
@@ -1,12 +1,28 @@
 package de.protos.etrice.gradle;
 
+import java.io.File;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.workers.WorkParameters;
 
 /**
  * The parameters of the {@link GeneratorWorker}.
+ * If the target directory is set, the worker transfers the generated files of the staging directory itself
+ * and fails if a request fails, so that the task need not wait for the worker.
+ * If the warm-up metrics file is set, the worker only creates the generator application and records the startup in the file.
+ * The worker spawn reason is recorded in the metrics of the work item that spawns the worker, whichever task submitted it.
  */
 public interface GeneratorParameters extends WorkParameters {
 	Property<String> getModule();
-	Property<String[]> getArgs();
-}
\ No newline at end of file
+	Property<String> getWorkerSpawnReason();
+	ListProperty<GeneratorRequest> getRequests();
+	DirectoryProperty getStagingDir();
+	DirectoryProperty getTargetDir();
+	ListProperty<File> getObsoleteFiles();
+	Property<Boolean> getCleanTargetDir();
+	RegularFileProperty getManifestFile();
+	RegularFileProperty getWarmUpMetricsFile();
+}
@@ -0,0 +1,123 @@
+package de.protos.etrice.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+
+import org.gradle.api.GradleException;
+
+/**
+ * A single generator invocation that is passed to the {@link GeneratorWorker}.
+ * The command line is either part of the request or stored in a {@link GeneratorArguments} file.
+ */
+public class GeneratorRequest implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private final String[] args;
+	private final File argumentsFile;
+	private final File failureFile;
+	private final File metricsFile;
+	private final long submitTime;
+	
+	/**
+	 * Creates a new generator request.
+	 * 
+	 * @param args the command line arguments for the generator
+	 * @param failureFile the file the worker writes the failure to if the generator run fails
+	 * @param metricsFile the file the worker writes the {@link WorkerMetrics} to
+	 */
+	public GeneratorRequest(String[] args, File failureFile, File metricsFile) {
+		this(args, null, failureFile, metricsFile);
+	}
+	
+	/**
+	 * Creates a new generator request whose command line is read from an argument file.
+	 * 
+	 * @param argumentsFile the file that contains the arguments for the generator
+	 * @param failureFile the file the worker writes the failure to if the generator run fails
+	 * @param metricsFile the file the worker writes the {@link WorkerMetrics} to
+	 */
+	public GeneratorRequest(File argumentsFile, File failureFile, File metricsFile) {
+		this(null, argumentsFile, failureFile, metricsFile);
+	}
+	
+	private GeneratorRequest(String[] args, File argumentsFile, File failureFile, File metricsFile) {
+		this.args = args;
+		this.argumentsFile = argumentsFile;
+		this.failureFile = failureFile;
+		this.metricsFile = metricsFile;
+		this.submitTime = System.currentTimeMillis();
+	}
+	
+	/**
+	 * @return the command line arguments for the generator or {@code null} if they are stored in the arguments file
+	 */
+	public String[] getArgs() {
+		return args;
+	}
+	
+	/**
+	 * @return the file that contains the arguments for the generator or {@code null} if they are part of the request
+	 */
+	public File getArgumentsFile() {
+		return argumentsFile;
+	}
+	
+	/**
+	 * Reads the arguments file if the arguments are not part of the request.
+	 * 
+	 * @return the command line arguments for the generator
+	 */
+	public String[] resolveArgs() {
+		return args != null ? args : GeneratorArguments.read(argumentsFile).toArgs();
+	}
+	
+	/**
+	 * @return the file the worker writes the failure to if the generator run fails
+	 */
+	public File getFailureFile() {
+		return failureFile;
+	}
+	
+	/**
+	 * @return the file the worker writes the {@link WorkerMetrics} to
+	 */
+	public File getMetricsFile() {
+		return metricsFile;
+	}
+	
+	/**
+	 * @return the time in milliseconds since the epoch when the request was created
+	 */
+	public long getSubmitTime() {
+		return submitTime;
+	}
+	
+	/**
+	 * Reports the failures of requests in the same format, whether the task or the worker checks them.
+	 * 
+	 * @param requests the completed requests
+	 * @throws GradleException with the failures of all failed requests if any request has failed
+	 */
+	public static void rethrowFailures(Collection<GeneratorRequest> requests) {
+		StringBuilder failures = new StringBuilder();
+		for(GeneratorRequest request : requests) {
+			if(request.failureFile.isFile()) {
+				try {
+					failures.append('\n').append(new String(Files.readAllBytes(request.failureFile.toPath()), StandardCharsets.UTF_8));
+				}
+				catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+		if(failures.length() > 0)
+			throw new GradleException("Code generation failed:" + failures);
+	}
+
+}
@@ -0,0 +1,222 @@
+package de.protos.etrice.gradle;
+
+import java.io.File;
+import java.util.Collections;
+
+import javax.inject.Inject;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkerExecutor;
+
+/**
+ * Starts the worker of a generator and creates the generator application before the generate task needs it.
+ * The task has no inputs other than the generator, so Gradle runs it as soon as the task graph is ready,
+ * while the generate task still waits for its model files and modelpath.
+ * The warm-up does not wait for the worker, the worker options must match those of the generate task so that it finds the worker ready.
+ * The generate task depends on the warm-up, since a worker runs one work item at a time and the generate task would otherwise start another worker.
+ * The worker belongs to the worker pool of Gradle, which stops it like any other worker, even if the build fails.
+ */
+public abstract class GeneratorWarmUpTask extends DefaultTask implements GeneratorWorkerOptions {
+	
+	private final ConfigurableFileCollection classpath;
+	private final Property<String> module;
+	private final Property<String> isolation;
+	private final Property<String> maxHeapSize;
+	private final Property<String> minHeapSize;
+	private final Property<String> garbageCollector;
+	private final ListProperty<String> jvmArgs;
+	private final Property<Boolean> classDataSharing;
+	private final DirectoryProperty classDataSharingDir;
+	private final ListProperty<String> environmentAllowlist;
+	private final Property<Boolean> stableClasspath;
+	private final DirectoryProperty classpathCacheDir;
+	private final Property<GenerationMetricsService> metricsService;
+	private final Property<GeneratorWorkerLimitService> workerLimitService;
+	
+	private final WorkerExecutor executor;
+	
+	/**
+	 * Creates a new warm-up task for a generator.
+	 * 
+	 * @param executor Gradle worker executor
+	 * @param objects Gradle object factory
+	 */
+	@Inject
+	public GeneratorWarmUpTask(WorkerExecutor executor, ObjectFactory objects) {
+		this.executor = executor;
+		
+		classpath = objects.fileCollection();
+		module = objects.property(String.class);
+		isolation = objects.property(String.class).convention(GenerateTask.ISOLATION_PROCESS);
+		maxHeapSize = objects.property(String.class);
+		minHeapSize = objects.property(String.class);
+		garbageCollector = objects.property(String.class);
+		jvmArgs = objects.listProperty(String.class);
+		classDataSharing = objects.property(Boolean.class).convention(false);
+		classDataSharingDir = objects.directoryProperty();
+		environmentAllowlist = objects.listProperty(String.class).convention(GenerateTask.DEFAULT_ENVIRONMENT_ALLOWLIST);
+		stableClasspath = objects.property(Boolean.class).convention(false);
+		classpathCacheDir = objects.directoryProperty();
+		metricsService = objects.property(GenerationMetricsService.class);
+		workerLimitService = objects.property(GeneratorWorkerLimitService.class);
+	}
+	
+	/**
+	 * @return all files of the generator classpath
+	 */
+	@Override
+	@Classpath
+	public ConfigurableFileCollection getClasspath() {
+		return classpath;
+	}
+	
+	/**
+	 * @return the symbolic name of the generator
+	 */
+	@Input
+	public Property<String> getModule() {
+		return module;
+	}
+	
+	/**
+	 * @return the isolation mode of the generator
+	 * @see GenerateTask#getIsolation()
+	 */
+	@Override
+	@Internal
+	public Property<String> getIsolation() {
+		return isolation;
+	}
+	
+	/**
+	 * @return the maximum heap size of the worker process
+	 */
+	@Override
+	@Internal
+	public Property<String> getMaxHeapSize() {
+		return maxHeapSize;
+	}
+	
+	/**
+	 * @return the initial heap size of the worker process
+	 */
+	@Override
+	@Internal
+	public Property<String> getMinHeapSize() {
+		return minHeapSize;
+	}
+	
+	/**
+	 * @return the name of the garbage collector of the worker process
+	 */
+	@Override
+	@Internal
+	public Property<String> getGarbageCollector() {
+		return garbageCollector;
+	}
+	
+	/**
+	 * @return additional JVM arguments of the worker process
+	 */
+	@Override
+	@Internal
+	public ListProperty<String> getJvmArgs() {
+		return jvmArgs;
+	}
+	
+	/**
+	 * @return whether the worker process uses class data sharing
+	 * @see GenerateTask#getClassDataSharing()
+	 */
+	@Override
+	@Internal
+	public Property<Boolean> getClassDataSharing() {
+		return classDataSharing;
+	}
+	
+	/**
+	 * @return the directory of the class data sharing archives
+	 */
+	@Override
+	@Internal
+	public DirectoryProperty getClassDataSharingDir() {
+		return classDataSharingDir;
+	}
+	
+	/**
+	 * @return the patterns of the environment variables forwarded to the worker process
+	 * @see GenerateTask#getEnvironmentAllowlist()
+	 */
+	@Override
+	@Internal
+	public ListProperty<String> getEnvironmentAllowlist() {
+		return environmentAllowlist;
+	}
+	
+	/**
+	 * @return whether the worker gets content-addressed copies of the generator jars
+	 * @see GenerateTask#getStableClasspath()
+	 */
+	@Override
+	@Internal
+	public Property<Boolean> getStableClasspath() {
+		return stableClasspath;
+	}
+	
+	/**
+	 * @return the directory of the content-addressed copies of the generator classpath
+	 */
+	@Override
+	@Internal
+	public DirectoryProperty getClasspathCacheDir() {
+		return classpathCacheDir;
+	}
+	
+	/**
+	 * @return the service that collects the metrics of the warm-up, no metrics are recorded if not set
+	 */
+	@Internal
+	public Property<GenerationMetricsService> getMetricsService() {
+		return metricsService;
+	}
+	
+	/**
+	 * The warm-up counts as a generator worker, so that it does not exceed the bound of the build.
+	 * 
+	 * @return the service that bounds the number of concurrent generator workers of this build
+	 */
+	@Internal
+	public Property<GeneratorWorkerLimitService> getWorkerLimitService() {
+		return workerLimitService;
+	}
+	
+	/**
+	 * Submits a work item without requests to the worker of the generator.
+	 */
+	@TaskAction
+	protected void warmUp() {
+		GenerationMetrics metrics = new GenerationMetrics(getPath(), GeneratorWarmUpTask.class.getSimpleName());
+		File metricsFile = new File(getTemporaryDir(), "metrics.properties");
+		metricsFile.delete();
+		createWorkQueue(executor, metrics).submit(GeneratorWorker.class, params -> {
+			params.getModule().set(module);
+			params.getWorkerSpawnReason().set(metrics.getWorkerSpawnReason());
+			params.getRequests().set(Collections.emptyList());
+			params.getWarmUpMetricsFile().set(metricsFile);
+		});
+		metrics.addPendingWorkItem(metricsFile);
+		metrics.finish(false);
+		if(metricsService.isPresent())
+			metricsService.get().record(metrics);
+	}
+
+}
@@ -1,12 +1,18 @@
 package de.protos.etrice.gradle;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.PrintWriter;
 import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationTargetException;
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import com.google.inject.Module;
@@ -16,24 +22,130 @@ import org.gradle.workers.WorkAction;
 
 /**
  * Gradle worker implementation for eTrice generators.
- * Generator applications are cached and reused.
+ * Generator applications are cached and reused, see {@link GeneratorApplicationCache}.
+ * All requests of a batch are executed in order by the same generator application.
+ * In the in-process isolation modes several workers may run concurrently in the same class loader,
+ * therefore each work item leases its own generator application from a pool.
+ * The timings of each request are written to its metrics file.
+ * If a target directory is set, the worker also transfers the generated files and fails if a request fails.
+ * A warm-up work item has no requests and just starts the worker and creates the generator application in advance.
  */
 public abstract class GeneratorWorker implements WorkAction<GeneratorParameters> {
-
+	
 	@Deprecated private static final String MODULE_CLASS_NAME_LOCATION = "META-INF/generators/";
-	private static final HashMap<String, GeneratorApplication> CACHE = new HashMap<>();
+	private static GeneratorApplicationCache cache;
 	
 	/**
-	 * Runs the generator with the passed arguments.
+	 * Runs the generator for each request of the batch.
+	 * The failure of a single request is reported to its failure file and does not affect the other requests.
+	 * The generator application is leased for the whole batch, other work items use other applications meanwhile.
 	 */
 	@Override
 	public void execute() {
+		boolean workerSpawned = WorkerMetrics.start();
+		long initStart = System.nanoTime();
 		String name = getParameters().getModule().get();
-		String[] args = getParameters().getArgs().get();
-		CACHE.computeIfAbsent(name, n -> {
-			Module module = createGeneratorModule(n);
-			return GeneratorApplication.create(module);
-		}).run(args);
+		WorkerMetrics initMetrics = new WorkerMetrics();
+		initMetrics.setWorkerSpawned(workerSpawned);
+		if(workerSpawned)
+			initMetrics.setWorkerSpawnReason(getParameters().getWorkerSpawnReason().getOrNull());
+		GeneratorApplication application = getCache().acquire(name, module -> GeneratorApplication.create(createGeneratorModule(module)), initMetrics);
+		initMetrics.setInitTime(GenerationMetrics.millisSince(initStart));
+		if(workerSpawned && initMetrics.isApplicationCreated() && ClassDataSharing.isEnabled()) {
+			long startupTime = ManagementFactory.getRuntimeMXBean().getUptime();
+			initMetrics.setStartup(startupTime, ClassDataSharing.recordStartup(startupTime));
+		}
+		
+		List<GeneratorRequest> requests = getParameters().getRequests().get();
+		List<WorkerMetrics> requestMetrics = new ArrayList<>();
+		try {
+			for(GeneratorRequest request : requests) {
+				WorkerMetrics metrics = requestMetrics.isEmpty() ? initMetrics : new WorkerMetrics();
+				metrics.setQueueWait(System.currentTimeMillis() - request.getSubmitTime());
+				requestMetrics.add(metrics);
+				long runStart = System.nanoTime();
+				try {
+					application.run(request.resolveArgs());
+				}
+				catch(RuntimeException e) {
+					writeFailure(request.getFailureFile(), e);
+					metrics.setFailed(true);
+				}
+				metrics.setRunTime(GenerationMetrics.millisSince(runStart));
+				metrics.setRetainedHeap(GeneratorApplicationCache.getRetainedHeap());
+				if(getParameters().getTargetDir().isPresent() && !metrics.isFailed())
+					syncGeneratedFiles(request, metrics);
+			}
+		}
+		finally {
+			// The last work item records the evictions of the release.
+			getCache().release(application, requestMetrics.isEmpty() ? initMetrics : requestMetrics.get(requestMetrics.size() - 1));
+		}
+		// The generator has loaded its classes now, a warm-up without requests has not run it yet.
+		if(!requests.isEmpty())
+			ClassDataSharing.dumpArchive();
+		long completionTime = System.currentTimeMillis();
+		for(int i = 0; i < requestMetrics.size(); i++) {
+			requestMetrics.get(i).setCompletionTime(completionTime);
+			requestMetrics.get(i).write(requests.get(i).getMetricsFile());
+		}
+		if(getParameters().getWarmUpMetricsFile().isPresent()) {
+			initMetrics.setCompletionTime(completionTime);
+			initMetrics.write(getParameters().getWarmUpMetricsFile().get().getAsFile());
+		}
+		if(getParameters().getTargetDir().isPresent())
+			GeneratorRequest.rethrowFailures(requests);
+	}
+	
+	/**
+	 * @return the generator applications of this worker
+	 * @throws IllegalArgumentException if a limit of the cache is invalid
+	 */
+	private static synchronized GeneratorApplicationCache getCache() {
+		if(cache == null)
+			cache = new GeneratorApplicationCache();
+		return cache;
+	}
+	
+	/**
+	 * Transfers the generated files of the staging directory to the target directory and writes the manifest.
+	 * A failed transfer is reported like a failed generator run.
+	 * 
+	 * @param request the request that generated the files
+	 * @param metrics the metrics of the request
+	 */
+	private void syncGeneratedFiles(GeneratorRequest request, WorkerMetrics metrics) {
+		GeneratorParameters parameters = getParameters();
+		Path stagingDir = parameters.getStagingDir().get().getAsFile().toPath();
+		Path targetDir = parameters.getTargetDir().get().getAsFile().toPath();
+		long syncStart = System.nanoTime();
+		try {
+			List<File> obsoleteFiles = parameters.getCleanTargetDir().get() ? GeneratedFileSync.listFiles(targetDir) : parameters.getObsoleteFiles().get();
+			List<File> stagedFiles = GeneratedFileSync.listFiles(stagingDir);
+			GeneratedFileSync sync = GeneratedFileSync.sync(stagingDir, targetDir, obsoleteFiles);
+			sync.writeManifest(parameters.getManifestFile().get().getAsFile());
+			metrics.setSync(stagedFiles.size(), stagedFiles.stream().mapToLong(File::length).sum(),
+				sync.getAdded().size() + sync.getChanged().size(), GenerationMetrics.millisSince(syncStart));
+		}
+		catch(RuntimeException e) {
+			writeFailure(request.getFailureFile(), e);
+			metrics.setFailed(true);
+		}
+	}
+	
+	/**
+	 * Writes the stack trace of a failed generator run to a file.
+	 * 
+	 * @param file the file to write to
+	 * @param failure the failure of the generator run
+	 */
+	private static void writeFailure(File file, Throwable failure) {
+		try(PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file.toPath()))) {
+			failure.printStackTrace(writer);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
 	}
 	
 	/**
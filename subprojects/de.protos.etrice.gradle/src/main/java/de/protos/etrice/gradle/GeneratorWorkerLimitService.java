@@ -0,0 +1,117 @@
+package de.protos.etrice.gradle;
+
+import java.util.Locale;
+
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Build service that bounds the number of generate tasks that run their generator at the same time.
+ * Gradle does not run more tasks that use this service in parallel than the limit, therefore generate tasks need not block
+ * a worker thread until their generator has finished and Gradle can overlap the generation with other work.
+ * The limit is the maximum number of workers or, if a heap budget is set, the number of workers whose heap fits into the budget.
+ * Without maximum and budget the service does not limit anything and generate tasks wait for their generator as before.
+ */
+public abstract class GeneratorWorkerLimitService implements BuildService<GeneratorWorkerLimitService.Parameters> {
+	
+	public static final String SERVICE_NAME = "etriceGeneratorWorkerLimit";
+	
+	/** the Gradle property for the maximum number of generator workers that run concurrently */
+	public static final String MAX_WORKERS_PROPERTY = "etrice.generator.maxWorkers";
+	/** the Gradle property for the total heap of all concurrent generator workers, e.g. {@code 8g} */
+	public static final String HEAP_BUDGET_PROPERTY = "etrice.generator.heapBudget";
+	/** the Gradle property for the heap of a single generator worker, e.g. {@code 1g}, also the default maximum heap size of generator worker processes */
+	public static final String WORKER_HEAP_SIZE_PROPERTY = "etrice.generator.workerHeapSize";
+	
+	/**
+	 * The parameters of the worker limit service.
+	 */
+	public interface Parameters extends BuildServiceParameters {
+		/**
+		 * @return the maximum number of concurrent generator workers
+		 */
+		Property<Integer> getMaxWorkers();
+		
+		/**
+		 * @return the total heap of all concurrent generator workers
+		 */
+		Property<String> getHeapBudget();
+		
+		/**
+		 * @return the heap of a single generator worker
+		 */
+		Property<String> getWorkerHeapSize();
+	}
+	
+	/**
+	 * @return true if the number of concurrent generator workers is limited
+	 */
+	public boolean isLimited() {
+		return getLimit(getParameters()) > 0;
+	}
+	
+	/**
+	 * Computes the maximum number of concurrent generator workers.
+	 * 
+	 * @param parameters the parameters of the service
+	 * @return the limit, at least 1, or 0 if the number of workers is unlimited
+	 * @throws IllegalArgumentException if a parameter is invalid or the heap budget is set without worker heap size
+	 */
+	public static int getLimit(Parameters parameters) {
+		int limit = 0;
+		if(parameters.getMaxWorkers().isPresent()) {
+			limit = parameters.getMaxWorkers().get();
+			if(limit < 1)
+				throw new IllegalArgumentException(MAX_WORKERS_PROPERTY + " must be at least 1, but is " + limit);
+		}
+		if(parameters.getHeapBudget().isPresent()) {
+			if(!parameters.getWorkerHeapSize().isPresent())
+				throw new IllegalArgumentException(HEAP_BUDGET_PROPERTY + " requires " + WORKER_HEAP_SIZE_PROPERTY);
+			long heapBudget = parseMegabytes(parameters.getHeapBudget().get());
+			long workerHeapSize = parseMegabytes(parameters.getWorkerHeapSize().get());
+			int heapLimit = (int) Math.max(1, Math.min(Integer.MAX_VALUE, heapBudget / Math.max(1, workerHeapSize)));
+			limit = limit > 0 ? Math.min(limit, heapLimit) : heapLimit;
+		}
+		return limit;
+	}
+	
+	/**
+	 * Parses a memory size in the format of the JVM heap options.
+	 * 
+	 * @param size the size with an optional unit k, m, g or t, e.g. {@code 512m}
+	 * @return the size in megabytes
+	 * @throws IllegalArgumentException if the size has an invalid format
+	 */
+	static long parseMegabytes(String size) {
+		String value = size.trim().toLowerCase(Locale.ROOT);
+		long factor = 1L << 20;
+		if(!value.isEmpty()) {
+			switch(value.charAt(value.length() - 1)) {
+			case 'k':
+				factor = 1L << 10;
+				break;
+			case 'm':
+				factor = 1L << 20;
+				break;
+			case 'g':
+				factor = 1L << 30;
+				break;
+			case 't':
+				factor = 1L << 40;
+				break;
+			default:
+				factor = 1;
+			}
+			if(factor != 1)
+				value = value.substring(0, value.length() - 1);
+		}
+		try {
+			return Long.parseLong(value) * factor >> 20;
+		}
+		catch(NumberFormatException e) {
+			throw new IllegalArgumentException("invalid memory size " + size, e);
+		}
+	}
+
+}
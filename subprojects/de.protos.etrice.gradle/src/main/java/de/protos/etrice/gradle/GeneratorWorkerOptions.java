@@ -0,0 +1,230 @@
+package de.protos.etrice.gradle;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.gradle.api.JavaVersion;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+
+/**
+ * The options of the worker that runs a generator.
+ * Tasks with the same options submit their work to the same worker processes and share the generator applications cached there.
+ */
+interface GeneratorWorkerOptions {
+	
+	/**
+	 * @return all files of the generator classpath
+	 */
+	ConfigurableFileCollection getClasspath();
+	
+	/**
+	 * @return the isolation mode of the generator
+	 */
+	Property<String> getIsolation();
+	
+	/**
+	 * @return the maximum heap size of the worker process
+	 */
+	Property<String> getMaxHeapSize();
+	
+	/**
+	 * @return the initial heap size of the worker process
+	 */
+	Property<String> getMinHeapSize();
+	
+	/**
+	 * @return the name of the garbage collector of the worker process
+	 */
+	Property<String> getGarbageCollector();
+	
+	/**
+	 * @return additional JVM arguments of the worker process
+	 */
+	ListProperty<String> getJvmArgs();
+	
+	/**
+	 * @return whether worker processes share an archive of the generator classes
+	 * @see ClassDataSharing
+	 */
+	Property<Boolean> getClassDataSharing();
+	
+	/**
+	 * @return the directory of the class data sharing archives
+	 */
+	DirectoryProperty getClassDataSharingDir();
+	
+	/**
+	 * Environment variables are forwarded to the worker process if their name matches one of these patterns.
+	 * A pattern may contain {@code *} as a wildcard and is matched ignoring case, like the names on Windows.
+	 * 
+	 * @return the patterns of the forwarded environment variables
+	 */
+	ListProperty<String> getEnvironmentAllowlist();
+	
+	/**
+	 * @return whether the worker gets content-addressed copies of the generator jars
+	 * @see StableClasspath
+	 */
+	Property<Boolean> getStableClasspath();
+	
+	/**
+	 * @return the directory of the content-addressed copies of the generator classpath
+	 * @see StableClasspath
+	 */
+	DirectoryProperty getClasspathCacheDir();
+	
+	/**
+	 * Creates the work queue and records why the work might not reuse an existing worker.
+	 * 
+	 * @param executor Gradle worker executor
+	 * @param metrics records the reason why a new worker is spawned
+	 * @return a queue that submits work with the configured isolation mode and the generator classpath
+	 * @throws IllegalArgumentException if the isolation mode is unknown
+	 */
+	default WorkQueue createWorkQueue(WorkerExecutor executor, GenerationMetrics metrics) {
+		switch(getIsolation().get()) {
+		case GenerateTask.ISOLATION_PROCESS:
+			return createProcessWorkQueue(executor, metrics);
+		case GenerateTask.ISOLATION_CLASS_LOADER:
+			List<File> classpath = resolveClasspath();
+			metrics.setWorkerSpawnReason(new WorkerFingerprint(GenerateTask.ISOLATION_CLASS_LOADER, classpath, Collections.emptyList(), Collections.emptyMap()).register());
+			return executor.classLoaderIsolation(spec -> spec.getClasspath().from(classpath));
+		case GenerateTask.ISOLATION_NONE:
+			return executor.noIsolation();
+		default:
+			throw new IllegalArgumentException("unknown isolation mode " + getIsolation().get() + ", expected one of "
+				+ GenerateTask.ISOLATION_PROCESS + ", " + GenerateTask.ISOLATION_CLASS_LOADER + ", " + GenerateTask.ISOLATION_NONE);
+		}
+	}
+	
+	/**
+	 * Computes the configuration of the worker that {@link #createWorkQueue} would submit to, without registering it.
+	 * Work of options with equal fingerprints can run in the same worker.
+	 * 
+	 * @return the fingerprint of the isolation mode, the classpath, the fork options and the environment of the worker
+	 */
+	default WorkerFingerprint createFingerprint() {
+		switch(getIsolation().get()) {
+		case GenerateTask.ISOLATION_PROCESS:
+			List<File> processClasspath = resolveClasspath();
+			return new WorkerFingerprint(GenerateTask.ISOLATION_PROCESS, processClasspath,
+				createForkOptions(createJvmArgs(processClasspath)), selectEnvironment(getEnvironmentAllowlist().get()));
+		case GenerateTask.ISOLATION_CLASS_LOADER:
+			List<File> classpath = resolveClasspath();
+			return new WorkerFingerprint(GenerateTask.ISOLATION_CLASS_LOADER, classpath, Collections.emptyList(), Collections.emptyMap());
+		default:
+			return new WorkerFingerprint(getIsolation().get(), Collections.emptyList(), Collections.emptyList(), Collections.emptyMap());
+		}
+	}
+	
+	/**
+	 * @return the generator classpath, with content-addressed copies of the jars if the stable classpath is enabled
+	 */
+	default List<File> resolveClasspath() {
+		// Since Gradle version 7.6, the Gradle worker api copies the jars on the classpath to a cache to
+		// avoid file locks on the actual files, see https://github.com/gradle/gradle/pull/21475.
+		// This also results in a new worker process if the files on the classpath are modified because the
+		// file paths of the transformed classpath change every time the actual files are modified.
+		// Therefore, the worker may get content-addressed copies of the jars, whose paths only change with their content.
+		if(getStableClasspath().get())
+			return StableClasspath.resolve(getClasspathCacheDir().get().getAsFile(), getClasspath());
+		return new ArrayList<>(getClasspath().getFiles());
+	}
+	
+	/**
+	 * @param executor Gradle worker executor
+	 * @param metrics records the reason why a new worker is spawned
+	 * @return a queue that submits work to worker processes with the generator classpath and the fork options
+	 */
+	default WorkQueue createProcessWorkQueue(WorkerExecutor executor, GenerationMetrics metrics) {
+		List<File> classpath = resolveClasspath();
+		// Environment variables are not forwarded to worker processes by default,
+		// see https://github.com/gradle/gradle/issues/8030.
+		// This breaks for example Files.createTempFile and Files.createTempDirectory on Windows.
+		// Therefore, we explicitly forward the allowed environment variables to the worker process here.
+		Map<String, String> environment = selectEnvironment(getEnvironmentAllowlist().get());
+		List<String> jvmArgs = createJvmArgs(classpath);
+		metrics.setWorkerSpawnReason(new WorkerFingerprint(GenerateTask.ISOLATION_PROCESS, classpath, createForkOptions(jvmArgs), environment).register());
+		
+		return executor.processIsolation(spec -> {
+			spec.getClasspath().from(classpath);
+			spec.forkOptions(options -> {
+				options.environment(environment);
+				if(getMaxHeapSize().isPresent()) {
+					options.setMaxHeapSize(getMaxHeapSize().get());
+				}
+				if(getMinHeapSize().isPresent()) {
+					options.setMinHeapSize(getMinHeapSize().get());
+				}
+				options.jvmArgs(jvmArgs);
+			});
+		});
+	}
+	
+	/**
+	 * @param classpath the stable generator classpath
+	 * @return the JVM arguments of a worker process
+	 */
+	default List<String> createJvmArgs(List<File> classpath) {
+		List<String> jvmArgs = new ArrayList<>();
+		// The following JVM flag allows to run older eTrice versions (which use Xtext 2.25) with Java 17+
+		// and silences illegal reflective access warnings that appear since Java 9+.
+		// The issue originates in old versions of guice which was updated in more recent Xtext versions, 
+		// see https://github.com/google/guice/issues/1085.
+		if(JavaVersion.current().isJava9Compatible()) {
+			jvmArgs.add("--add-opens");
+			jvmArgs.add("java.base/java.lang=ALL-UNNAMED");
+		}
+		if(getGarbageCollector().isPresent()) {
+			jvmArgs.add("-XX:+Use" + getGarbageCollector().get() + "GC");
+		}
+		if(getClassDataSharing().get()) {
+			jvmArgs.addAll(ClassDataSharing.getJvmArgs(getClassDataSharingDir().get().getAsFile(), classpath));
+		}
+		jvmArgs.addAll(getJvmArgs().get());
+		return jvmArgs;
+	}
+	
+	/**
+	 * @param jvmArgs the JVM arguments of a worker process
+	 * @return the JVM arguments and the heap sizes of a worker process
+	 */
+	default List<String> createForkOptions(List<String> jvmArgs) {
+		List<String> forkOptions = new ArrayList<>(jvmArgs);
+		if(getMaxHeapSize().isPresent())
+			forkOptions.add("-Xmx" + getMaxHeapSize().get());
+		if(getMinHeapSize().isPresent())
+			forkOptions.add("-Xms" + getMinHeapSize().get());
+		return forkOptions;
+	}
+	
+	/**
+	 * @param allowlist the patterns of the environment variable names, {@code *} matches any characters
+	 * @return the environment variables of this process whose names match the allowlist
+	 */
+	static Map<String, String> selectEnvironment(Iterable<String> allowlist) {
+		List<Pattern> patterns = new ArrayList<>();
+		for(String pattern : allowlist) {
+			patterns.add(Pattern.compile(Arrays.stream(pattern.split("\\*", -1)).map(Pattern::quote).collect(Collectors.joining(".*")), Pattern.CASE_INSENSITIVE));
+		}
+		Map<String, String> environment = new TreeMap<>();
+		System.getenv().forEach((name, value) -> {
+			if(patterns.stream().anyMatch(pattern -> pattern.matcher(name).matches()))
+				environment.put(name, value);
+		});
+		return environment;
+	}
+
+}
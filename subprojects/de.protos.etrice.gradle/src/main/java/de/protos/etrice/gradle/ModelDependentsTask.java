@@ -0,0 +1,87 @@
+package de.protos.etrice.gradle;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.SourceTask;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+/**
+ * Lists the model files that depend on a model file or namespace.
+ * The dependencies are looked up in the persistent model index without running the generator.
+ */
+public abstract class ModelDependentsTask extends SourceTask {
+	
+	private final ProjectLayout layout;
+	
+	private final ConfigurableFileCollection modelpath;
+	private final RegularFileProperty indexFile;
+	private final Property<String> model;
+	
+	@Inject
+	public ModelDependentsTask(ProjectLayout layout, ObjectFactory objects) {
+		this.layout = layout;
+		
+		modelpath = objects.fileCollection();
+		indexFile = objects.fileProperty();
+		model = objects.property(String.class);
+	}
+	
+	/**
+	 * @return the modelpath whose model files are considered as well
+	 */
+	@Internal
+	public ConfigurableFileCollection getModelpath() {
+		return modelpath;
+	}
+	
+	/**
+	 * @return the location of the persistent model index
+	 */
+	@Internal
+	public RegularFileProperty getIndexFile() {
+		return indexFile;
+	}
+	
+	/**
+	 * @return the path of the model file relative to the project directory or the namespace of the model
+	 */
+	@Input
+	@Option(option = "model", description = "The path or namespace of the model whose dependents are listed")
+	public Property<String> getModel() {
+		return model;
+	}
+	
+	@TaskAction
+	protected void listDependents() {
+		Set<File> modelFiles = new HashSet<>(getSource().getFiles());
+		modelFiles.addAll(ModelIndex.getModelFiles(modelpath));
+		File file = indexFile.get().getAsFile();
+		ModelIndex index = ModelIndex.load(file).update(modelFiles).merge(ModelIndex.loadArchives(modelpath));
+		index.save(file);
+		
+		ModelImportGraph graph = new ModelImportGraph(index);
+		File modelFile = layout.getProjectDirectory().file(model.get()).getAsFile();
+		Set<File> dependents = modelFile.isFile()
+			? graph.getDependents(Collections.singleton(modelFile), Collections.emptySet())
+			: graph.getDependents(Collections.emptySet(), Collections.singleton(model.get()));
+		dependents.remove(modelFile);
+		dependents.stream()
+			.map(File::getPath)
+			.sorted()
+			.forEach(path -> getLogger().lifecycle(path));
+	}
+
+}
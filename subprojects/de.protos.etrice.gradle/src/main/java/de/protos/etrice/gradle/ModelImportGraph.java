@@ -0,0 +1,161 @@
+package de.protos.etrice.gradle;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dependency graph of model files.
+ * A model file depends on another model file if it refers to the namespace of the other model by a qualified name
+ * or if it imports the other model file by its path.
+ * The graph is derived from the model text without running the generator and therefore over-approximates the actual dependencies.
+ */
+class ModelImportGraph {
+	
+	private final ModelIndex index;
+	private final Map<String, Set<File>> referencingFiles = new HashMap<>();
+	private final Map<File, Set<File>> importingFiles = new HashMap<>();
+	
+	/**
+	 * Creates the dependency graph of all files of a model index.
+	 * 
+	 * @param index the index of the model files
+	 */
+	public ModelImportGraph(ModelIndex index) {
+		this.index = index;
+		for(File file : index.getFiles()) {
+			for(String reference : index.getReferences(file)) {
+				// Register all prefixes of the qualified name, any of them could be the namespace of a model.
+				int dotIndex = reference.indexOf('.');
+				while(dotIndex != -1) {
+					referencingFiles.computeIfAbsent(reference.substring(0, dotIndex), k -> new HashSet<>()).add(file);
+					dotIndex = reference.indexOf('.', dotIndex + 1);
+				}
+				referencingFiles.computeIfAbsent(reference, k -> new HashSet<>()).add(file);
+			}
+			for(File importedFile : index.getImportedFiles(file)) {
+				importingFiles.computeIfAbsent(importedFile, k -> new HashSet<>()).add(file);
+			}
+		}
+	}
+	
+	/**
+	 * @return all model files of the graph
+	 */
+	public Set<File> getFiles() {
+		return index.getFiles();
+	}
+	
+	/**
+	 * @param file a model file of the graph
+	 * @return the namespace declared by the model file or {@code null} if none was found
+	 */
+	public String getNamespace(File file) {
+		return index.getNamespace(file);
+	}
+	
+	/**
+	 * @param file a model file of the graph
+	 * @return the content hash of the model file or {@code null} if it is unknown
+	 */
+	public byte[] getHash(File file) {
+		return index.getHash(file);
+	}
+	
+	/**
+	 * Computes the files that transitively depend on the passed files or namespaces.
+	 * 
+	 * @param files the files whose dependents are searched, the files itself are part of the result if they belong to the graph
+	 * @param namespaces additional namespaces whose dependents are searched, e.g. the namespaces of deleted models
+	 * @return the passed files of the graph and all their transitive dependents
+	 */
+	public Set<File> getDependents(Collection<File> files, Collection<String> namespaces) {
+		Set<File> result = new LinkedHashSet<>();
+		Deque<File> queue = new ArrayDeque<>();
+		for(File file : files) {
+			if(index.getFiles().contains(file) && result.add(file)) {
+				queue.add(file);
+			}
+		}
+		for(String namespace : namespaces) {
+			for(File dependent : referencingFiles.getOrDefault(namespace, Collections.emptySet())) {
+				if(result.add(dependent)) {
+					queue.add(dependent);
+				}
+			}
+		}
+		while(!queue.isEmpty()) {
+			File file = queue.poll();
+			for(File dependent : getDirectDependents(file)) {
+				if(result.add(dependent)) {
+					queue.add(dependent);
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Splits model files into components that do not depend on each other.
+	 * Two files belong to the same component if one of them depends on the other, directly or via other passed files.
+	 * 
+	 * @param files the model files to split
+	 * @return the components in the iteration order of the passed files
+	 */
+	public List<Set<File>> getComponents(Collection<File> files) {
+		// union find with path halving
+		Map<File, File> parents = new HashMap<>();
+		for(File file : files) {
+			parents.put(file, file);
+		}
+		for(File file : files) {
+			for(File dependent : getDirectDependents(file)) {
+				if(parents.containsKey(dependent)) {
+					parents.put(findRoot(parents, file), findRoot(parents, dependent));
+				}
+			}
+		}
+		
+		Map<File, Set<File>> components = new LinkedHashMap<>();
+		for(File file : files) {
+			components.computeIfAbsent(findRoot(parents, file), k -> new LinkedHashSet<>()).add(file);
+		}
+		return new ArrayList<>(components.values());
+	}
+	
+	private static File findRoot(Map<File, File> parents, File file) {
+		File parent = parents.get(file);
+		while(!parent.equals(file)) {
+			File grandParent = parents.get(parent);
+			parents.put(file, grandParent);
+			file = grandParent;
+			parent = parents.get(file);
+		}
+		return file;
+	}
+	
+	/**
+	 * @param file a model file of the graph
+	 * @return all files that directly depend on the passed file
+	 */
+	private Set<File> getDirectDependents(File file) {
+		Set<File> dependents = new HashSet<>(importingFiles.getOrDefault(file, Collections.emptySet()));
+		String namespace = getNamespace(file);
+		if(namespace != null) {
+			dependents.addAll(referencingFiles.getOrDefault(namespace, Collections.emptySet()));
+		}
+		dependents.remove(file);
+		return dependents;
+	}
+
+}
@@ -0,0 +1,491 @@
+package de.protos.etrice.gradle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.gradle.api.file.FileCollection;
+
+/**
+ * Index of the namespace declarations and references of model files.
+ * The index is persisted in a compact binary format and updated incrementally:
+ * A model file is only parsed again if its content hash has changed.
+ */
+class ModelIndex {
+	
+	/** the include patterns for model files */
+	public static final String[] MODEL_FILE_PATTERNS = { "**/*.room", "**/*.etmap", "**/*.etphys", "**/*.etconfig" };
+	
+	/** the location of a pre-built index in a model archive */
+	public static final String ARCHIVE_INDEX_ENTRY = "META-INF/etrice/model-index.bin";
+	
+	/** the version of the binary format */
+	public static final int VERSION = 1;
+	
+	private static final int MAGIC = 0x45544958;
+	
+	private static final Pattern MODEL_FILE = Pattern.compile(".*\\.(?:room|etmap|etphys|etconfig)");
+	private static final Pattern COMMENT = Pattern.compile("//[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+	private static final Pattern STRING_LITERAL = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"");
+	private static final Pattern MODEL_DECLARATION = Pattern.compile("\\b(?:RoomModel|MappingModel|PhysicalModel|ConfigModel)\\s+([\\w.]+)");
+	private static final Pattern IMPORT = Pattern.compile("\\bimport\\s+(\\w+(?:\\.\\w+)*)");
+	private static final Pattern QUALIFIED_NAME = Pattern.compile("\\b[A-Za-z_]\\w*(?:\\.[A-Za-z_]\\w*)+");
+	
+	private final Map<File, Entry> entries;
+	
+	private ModelIndex(Map<File, Entry> entries) {
+		this.entries = entries;
+	}
+	
+	/**
+	 * @param file any file
+	 * @return true if the file extension denotes a model file
+	 */
+	public static boolean isModelFile(File file) {
+		return MODEL_FILE.matcher(file.getName()).matches();
+	}
+	
+	/**
+	 * Collects the model files of a modelpath.
+	 * Archives and extracted archives with a pre-built index on the modelpath are not searched.
+	 * 
+	 * @param modelpath the modelpath
+	 * @return all model files in the directories of the modelpath
+	 */
+	public static Set<File> getModelFiles(FileCollection modelpath) {
+		List<Path> indexedDirs = modelpath.getFiles().stream()
+			.filter(ModelIndex::hasDirectoryIndex)
+			.map(File::toPath)
+			.collect(Collectors.toList());
+		return modelpath.getAsFileTree().matching(patterns -> patterns.include(MODEL_FILE_PATTERNS)).getFiles().stream()
+			.filter(file -> indexedDirs.stream().noneMatch(file.toPath()::startsWith))
+			.collect(Collectors.toSet());
+	}
+	
+	/**
+	 * Loads a persisted index.
+	 * 
+	 * @param indexFile the file of the persisted index
+	 * @return the loaded index or an empty index if the file does not exist or is not readable
+	 */
+	public static ModelIndex load(File indexFile) {
+		if(indexFile.isFile()) {
+			try(InputStream in = Files.newInputStream(indexFile.toPath())) {
+				return read(in);
+			}
+			catch(IOException | RuntimeException e) {
+				// The index is just a cache, start over with an empty index.
+			}
+		}
+		return empty();
+	}
+	
+	/**
+	 * @return a new index without entries
+	 */
+	public static ModelIndex empty() {
+		return new ModelIndex(new HashMap<>());
+	}
+	
+	/**
+	 * Loads the pre-built index of a model archive.
+	 * The paths of the model files are resolved against the archive file.
+	 * 
+	 * @param archive the model archive
+	 * @return the loaded index or an empty index if the archive contains no readable index
+	 */
+	public static ModelIndex loadArchive(File archive) {
+		try(ZipFile zipFile = new ZipFile(archive)) {
+			ZipEntry entry = zipFile.getEntry(ARCHIVE_INDEX_ENTRY);
+			if(entry != null) {
+				try(InputStream in = zipFile.getInputStream(entry)) {
+					return read(in).relocate(file -> new File(archive, file.getPath().replace('\\', '/')));
+				}
+			}
+		}
+		catch(IOException | RuntimeException e) {
+			// Fall back to an empty index, the archive is treated like an archive without index.
+		}
+		return empty();
+	}
+	
+	/**
+	 * Loads the pre-built indices of all model archives and extracted model archives of a modelpath.
+	 * 
+	 * @param modelpath the modelpath
+	 * @return the merged index of all archives
+	 */
+	public static ModelIndex loadArchives(FileCollection modelpath) {
+		ModelIndex index = empty();
+		for(File file : modelpath.getFiles()) {
+			if(file.isFile()) {
+				index = index.merge(loadArchive(file));
+			}
+			else if(hasDirectoryIndex(file)) {
+				index = index.merge(load(new File(file, ARCHIVE_INDEX_ENTRY)).relocate(path -> new File(file, path.getPath())));
+			}
+		}
+		return index;
+	}
+	
+	/**
+	 * @param dir any file
+	 * @return true if the file is an extracted model archive that contains a pre-built index
+	 */
+	private static boolean hasDirectoryIndex(File dir) {
+		return new File(dir, ARCHIVE_INDEX_ENTRY).isFile();
+	}
+	
+	private static ModelIndex read(InputStream input) throws IOException {
+		Map<File, Entry> entries = new HashMap<>();
+		DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+		if(in.readInt() == MAGIC && in.readInt() == VERSION) {
+			String[] strings = new String[in.readInt()];
+			for(int i = 0; i < strings.length; i++) {
+				strings[i] = in.readUTF();
+			}
+			int count = in.readInt();
+			for(int i = 0; i < count; i++) {
+				File file = new File(strings[in.readInt()]);
+				long size = in.readLong();
+				long lastModified = in.readLong();
+				byte[] hash = new byte[in.readUnsignedByte()];
+				in.readFully(hash);
+				int namespaceIndex = in.readInt();
+				String namespace = namespaceIndex != -1 ? strings[namespaceIndex] : null;
+				Set<String> references = new HashSet<>();
+				for(int j = in.readInt(); j > 0; j--) {
+					references.add(strings[in.readInt()]);
+				}
+				Set<File> importedFiles = new HashSet<>();
+				for(int j = in.readInt(); j > 0; j--) {
+					importedFiles.add(new File(strings[in.readInt()]));
+				}
+				entries.put(file, new Entry(size, lastModified, hash, namespace, references, importedFiles));
+			}
+		}
+		return new ModelIndex(entries);
+	}
+	
+	/**
+	 * Persists the index.
+	 * The file is replaced atomically to avoid that concurrent readers see a partially written index.
+	 * 
+	 * @param indexFile the file to write to
+	 */
+	public void save(File indexFile) {
+		write(indexFile, false);
+	}
+	
+	/**
+	 * Persists the index of a model library that is published with the library.
+	 * The index contains no modification times, uses {@code /} as separator and is written in a stable order,
+	 * so that it is reproducible and does not depend on the machine that built it.
+	 * Without modification times, the entries are validated by their content hash.
+	 * 
+	 * @param indexFile the file to write to
+	 */
+	public void saveLibraryIndex(File indexFile) {
+		write(indexFile, true);
+	}
+	
+	/**
+	 * @param indexFile the file to write to
+	 * @param library whether the index is written without machine-specific information
+	 */
+	private void write(File indexFile, boolean library) {
+		Function<File, String> toPath = library ? file -> file.getPath().replace(File.separatorChar, '/') : File::getPath;
+		Map<String, Entry> sortedEntries = new TreeMap<>();
+		entries.forEach((file, entry) -> sortedEntries.put(toPath.apply(file), entry));
+		Map<String, Integer> stringIndices = new LinkedHashMap<>();
+		sortedEntries.forEach((path, entry) -> {
+			stringIndices.putIfAbsent(path, stringIndices.size());
+			if(entry.namespace != null)
+				stringIndices.putIfAbsent(entry.namespace, stringIndices.size());
+			new TreeSet<>(entry.references).forEach(reference -> stringIndices.putIfAbsent(reference, stringIndices.size()));
+			entry.importedFiles.stream().map(toPath).sorted().forEach(importedPath -> stringIndices.putIfAbsent(importedPath, stringIndices.size()));
+		});
+		
+		try {
+			Path indexPath = indexFile.toPath();
+			Files.createDirectories(indexPath.getParent());
+			Path tmpPath = Files.createTempFile(indexPath.getParent(), indexFile.getName(), ".tmp");
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(stringIndices.size());
+				for(String string : stringIndices.keySet()) {
+					out.writeUTF(string);
+				}
+				out.writeInt(sortedEntries.size());
+				for(Map.Entry<String, Entry> mapEntry : sortedEntries.entrySet()) {
+					Entry entry = mapEntry.getValue();
+					out.writeInt(stringIndices.get(mapEntry.getKey()));
+					out.writeLong(entry.size);
+					out.writeLong(library ? 0 : entry.lastModified);
+					out.writeByte(entry.hash.length);
+					out.write(entry.hash);
+					out.writeInt(entry.namespace != null ? stringIndices.get(entry.namespace) : -1);
+					out.writeInt(entry.references.size());
+					for(String reference : new TreeSet<>(entry.references)) {
+						out.writeInt(stringIndices.get(reference));
+					}
+					out.writeInt(entry.importedFiles.size());
+					for(String importedPath : entry.importedFiles.stream().map(toPath).sorted().collect(Collectors.toList())) {
+						out.writeInt(stringIndices.get(importedPath));
+					}
+				}
+			}
+			Files.move(tmpPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Creates an index for the passed model files.
+	 * Entries of this index are reused if the size and modification time or the content hash of a file are unchanged.
+	 * 
+	 * @param files the model files to index
+	 * @return a new index that contains exactly the passed files
+	 */
+	public ModelIndex update(Iterable<File> files) {
+		MessageDigest digest = createDigest();
+		Map<File, Entry> updatedEntries = new HashMap<>();
+		for(File file : files) {
+			Entry entry = entries.get(file);
+			long size = file.length();
+			long lastModified = file.lastModified();
+			if(entry == null || entry.size != size || entry.lastModified != lastModified) {
+				byte[] content = read(file);
+				byte[] hash = digest.digest(content);
+				if(entry != null && Arrays.equals(entry.hash, hash))
+					entry = new Entry(size, lastModified, hash, entry.namespace, entry.references, entry.importedFiles);
+				else
+					entry = parse(file, size, lastModified, hash, content);
+			}
+			updatedEntries.put(file, entry);
+		}
+		return new ModelIndex(updatedEntries);
+	}
+	
+	/**
+	 * Creates a copy of this index with other file paths, e.g. paths relative to a source directory.
+	 * 
+	 * @param mapping maps the path of an indexed or imported file to its new path, entries that are mapped to {@code null} are omitted
+	 * @return the relocated index
+	 */
+	public ModelIndex relocate(Function<File, File> mapping) {
+		Map<File, Entry> relocatedEntries = new HashMap<>();
+		entries.forEach((file, entry) -> {
+			File relocatedFile = mapping.apply(file);
+			if(relocatedFile != null) {
+				Set<File> importedFiles = new HashSet<>();
+				for(File importedFile : entry.importedFiles) {
+					File relocatedImportedFile = mapping.apply(importedFile);
+					if(relocatedImportedFile != null)
+						importedFiles.add(relocatedImportedFile);
+				}
+				relocatedEntries.put(relocatedFile, new Entry(entry.size, entry.lastModified, entry.hash, entry.namespace, entry.references, importedFiles));
+			}
+		});
+		return new ModelIndex(relocatedEntries);
+	}
+	
+	/**
+	 * @param other another index
+	 * @return a new index that contains the entries of both indices, the entries of the other index take precedence
+	 */
+	public ModelIndex merge(ModelIndex other) {
+		Map<File, Entry> mergedEntries = new HashMap<>(entries);
+		mergedEntries.putAll(other.entries);
+		return new ModelIndex(mergedEntries);
+	}
+	
+	/**
+	 * Compares the models below a directory or archive with a previous index.
+	 * 
+	 * @param previous the previous index
+	 * @param root a directory or archive
+	 * @return the namespaces of all added, removed or changed models below the root or {@code null} if neither index contains a model below the root
+	 */
+	public Set<String> getChangedNamespaces(ModelIndex previous, File root) {
+		Path rootPath = root.toPath();
+		Set<File> files = new HashSet<>();
+		entries.keySet().stream().filter(file -> file.toPath().startsWith(rootPath)).forEach(files::add);
+		previous.entries.keySet().stream().filter(file -> file.toPath().startsWith(rootPath)).forEach(files::add);
+		if(files.isEmpty())
+			return null;
+		
+		Set<String> namespaces = new HashSet<>();
+		for(File file : files) {
+			Entry entry = entries.get(file);
+			Entry previousEntry = previous.entries.get(file);
+			if(entry == null || previousEntry == null || !Arrays.equals(entry.hash, previousEntry.hash)) {
+				if(entry != null && entry.namespace != null)
+					namespaces.add(entry.namespace);
+				if(previousEntry != null && previousEntry.namespace != null)
+					namespaces.add(previousEntry.namespace);
+			}
+		}
+		return namespaces;
+	}
+	
+	/**
+	 * @return all indexed model files
+	 */
+	public Set<File> getFiles() {
+		return Collections.unmodifiableSet(entries.keySet());
+	}
+	
+	/**
+	 * @param file an indexed model file
+	 * @return the SHA-1 hash of the content of the model file or {@code null} if the file is not indexed
+	 */
+	public byte[] getHash(File file) {
+		Entry entry = entries.get(file);
+		return entry != null ? entry.hash : null;
+	}
+	
+	/**
+	 * @param file an indexed model file
+	 * @return the namespace declared by the model file or {@code null} if none was found or the file is not indexed
+	 */
+	public String getNamespace(File file) {
+		Entry entry = entries.get(file);
+		return entry != null ? entry.namespace : null;
+	}
+	
+	/**
+	 * @param file an indexed model file
+	 * @return all qualified names and imported namespaces the model file refers to
+	 */
+	public Set<String> getReferences(File file) {
+		Entry entry = entries.get(file);
+		return entry != null ? Collections.unmodifiableSet(entry.references) : Collections.emptySet();
+	}
+	
+	/**
+	 * @param file an indexed model file
+	 * @return all model files that are imported by their path
+	 */
+	public Set<File> getImportedFiles(File file) {
+		Entry entry = entries.get(file);
+		return entry != null ? Collections.unmodifiableSet(entry.importedFiles) : Collections.emptySet();
+	}
+	
+	/**
+	 * Reads the declared namespace, all qualified names and all imported file paths of a model file.
+	 * 
+	 * @param file the model file
+	 * @param size the size of the file
+	 * @param lastModified the modification time of the file
+	 * @param hash the content hash of the file
+	 * @param content the content of the file
+	 * @return the index entry for the file
+	 */
+	private static Entry parse(File file, long size, long lastModified, byte[] hash, byte[] content) {
+		String text = new String(content, StandardCharsets.UTF_8);
+		text = COMMENT.matcher(text).replaceAll(" ");
+		
+		Set<File> importedFiles = new HashSet<>();
+		StringBuffer code = new StringBuffer();
+		Matcher stringMatcher = STRING_LITERAL.matcher(text);
+		while(stringMatcher.find()) {
+			String path = stringMatcher.group(1);
+			if(MODEL_FILE.matcher(path).matches()) {
+				File importedFile = new File(file.getParentFile(), path);
+				importedFiles.add(importedFile.toPath().normalize().toFile());
+			}
+			stringMatcher.appendReplacement(code, " ");
+		}
+		stringMatcher.appendTail(code);
+		
+		String namespace = null;
+		Matcher declarationMatcher = MODEL_DECLARATION.matcher(code);
+		if(declarationMatcher.find()) {
+			namespace = declarationMatcher.group(1);
+		}
+		
+		Set<String> references = new HashSet<>();
+		Matcher importMatcher = IMPORT.matcher(code);
+		while(importMatcher.find()) {
+			references.add(importMatcher.group(1));
+		}
+		Matcher nameMatcher = QUALIFIED_NAME.matcher(code);
+		while(nameMatcher.find()) {
+			references.add(nameMatcher.group());
+		}
+		
+		return new Entry(size, lastModified, hash, namespace, references, importedFiles);
+	}
+	
+	private static byte[] read(File file) {
+		try {
+			return Files.readAllBytes(file.toPath());
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		}
+		catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * The indexed information of a single model file.
+	 */
+	private static class Entry {
+		
+		private final long size;
+		private final long lastModified;
+		private final byte[] hash;
+		private final String namespace;
+		private final Set<String> references;
+		private final Set<File> importedFiles;
+		
+		public Entry(long size, long lastModified, byte[] hash, String namespace, Set<String> references, Set<File> importedFiles) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.hash = hash;
+			this.namespace = namespace;
+			this.references = references;
+			this.importedFiles = importedFiles;
+		}
+	}
+
+}
@@ -0,0 +1,70 @@
+package de.protos.etrice.gradle;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SourceTask;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Creates the model index of a model library.
+ * The paths of the model files are stored relative to their source directories,
+ * i.e. they correspond to the entries of the model zip of the library.
+ * Consumers of the library read the namespaces and references from this index instead of parsing the library models again.
+ * The index is reproducible, it does not contain the modification times of the model files.
+ */
+@CacheableTask
+public abstract class ModelIndexTask extends SourceTask {
+	
+	private final RegularFileProperty indexFile;
+	
+	@Inject
+	public ModelIndexTask(ObjectFactory objects) {
+		indexFile = objects.fileProperty();
+	}
+	
+	/**
+	 * @return the model files to index
+	 */
+	@Override
+	@InputFiles
+	@IgnoreEmptyDirectories
+	@PathSensitive(PathSensitivity.RELATIVE)
+	public FileTree getSource() {
+		return super.getSource();
+	}
+	
+	/**
+	 * @return the file the index is written to
+	 */
+	@OutputFile
+	public RegularFileProperty getIndexFile() {
+		return indexFile;
+	}
+	
+	@TaskAction
+	protected void createIndex() {
+		Map<File, File> relativeFiles = new HashMap<>();
+		getSource().visit(details -> {
+			if(!details.isDirectory())
+				relativeFiles.put(details.getFile(), new File(details.getPath()));
+		});
+		ModelIndex.empty()
+			.update(relativeFiles.keySet())
+			.relocate(relativeFiles::get)
+			.saveLibraryIndex(indexFile.get().getAsFile());
+	}
+
+}
@@ -1,17 +1,24 @@
 package de.protos.etrice.gradle;
 
+
 import javax.inject.Inject;
 
 import org.gradle.api.Named;
 import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.Directory;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.SourceDirectorySet;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.TaskProvider;
 
 /**
  * Group of model files and generator options.
+ * The model source owns its properties, the associated generate task is wired to them lazily.
+ * Configuring a model source therefore does not create the generate task.
  */
 public class ModelSource implements Named {
 	
@@ -19,11 +26,51 @@ public class ModelSource implements Named {
 	private final SourceDirectorySet source;
 	private final TaskProvider<GenerateTask> generateTask;
 	
+	private final ConfigurableFileCollection classpath;
+	private final Property<String> module;
+	private final DirectoryProperty genDir;
+	private final ConfigurableFileCollection modelpath;
+	private final MapProperty<String, Object> options;
+	private final Property<Boolean> incremental;
+	private final Property<Boolean> partitioned;
+	private final ListProperty<String> partitions;
+	private final Property<Integer> parallelism;
+	private final Property<String> isolation;
+	private final Property<String> maxHeapSize;
+	private final Property<String> minHeapSize;
+	private final Property<String> garbageCollector;
+	private final ListProperty<String> jvmArgs;
+	private final Property<Boolean> classDataSharing;
+	private final ListProperty<String> environmentAllowlist;
+	private final Property<Boolean> stableClasspath;
+	private final Property<Boolean> argumentFile;
+	private final Property<Boolean> warmUp;
+	
 	@Inject
-	public ModelSource(String name,	SourceDirectorySet source, TaskProvider<GenerateTask> generateTask) {
+	public ModelSource(String name,	SourceDirectorySet source, TaskProvider<GenerateTask> generateTask, ObjectFactory objects) {
 		this.name = name;
 		this.source = source;
 		this.generateTask = generateTask;
+		
+		classpath = objects.fileCollection();
+		module = objects.property(String.class);
+		genDir = objects.directoryProperty();
+		modelpath = objects.fileCollection();
+		options = objects.mapProperty(String.class, Object.class);
+		incremental = objects.property(Boolean.class).convention(false);
+		partitioned = objects.property(Boolean.class).convention(false);
+		partitions = objects.listProperty(String.class);
+		parallelism = objects.property(Integer.class).convention(Runtime.getRuntime().availableProcessors());
+		isolation = objects.property(String.class).convention(GenerateTask.ISOLATION_PROCESS);
+		maxHeapSize = objects.property(String.class);
+		minHeapSize = objects.property(String.class);
+		garbageCollector = objects.property(String.class);
+		jvmArgs = objects.listProperty(String.class);
+		classDataSharing = objects.property(Boolean.class).convention(false);
+		environmentAllowlist = objects.listProperty(String.class).convention(GenerateTask.DEFAULT_ENVIRONMENT_ALLOWLIST);
+		stableClasspath = objects.property(Boolean.class).convention(false);
+		argumentFile = objects.property(Boolean.class).convention(false);
+		warmUp = objects.property(Boolean.class).convention(false);
 	}
 	
 	@Override
@@ -35,14 +82,14 @@ public class ModelSource implements Named {
 	 * @return the classpath of the generator
 	 */
 	public ConfigurableFileCollection getClasspath() {
-		return generateTask.get().getClasspath();
+		return classpath;
 	}
 	
 	/**
 	 * @return the symbolic generator name
 	 */
 	public Property<String> getModule() {
-		return generateTask.get().getModule();
+		return module;
 	}
 	
 	/**
@@ -53,24 +100,141 @@ public class ModelSource implements Named {
 	}
 	
 	/**
+	 * The default destination is provided by the generate task and therefore carries the dependency on the task.
+	 * A destination that is set explicitly does not, use {@link #getOutputDir()} to consume it.
+	 * 
 	 * @return the destination for generated files
 	 */
 	public DirectoryProperty getGenDir() {
-		return generateTask.get().getGenDir();
+		return genDir;
+	}
+	
+	/**
+	 * @return the directory of the generated files that always carries the dependency on the generate task
+	 */
+	public Provider<Directory> getOutputDir() {
+		return generateTask.flatMap(GenerateTask::getGenDir);
 	}
 	
 	/**
 	 * @return the modelpath that is passed to the generator
 	 */
 	public ConfigurableFileCollection getModelpath() {
-		return generateTask.get().getModelpath();
+		return modelpath;
 	}
 	
 	/**
 	 * @return the options that are passed to the generator
 	 */
 	public MapProperty<String, Object> getOptions() {
-		return generateTask.get().getOptions();
+		return options;
+	}
+	
+	/**
+	 * @return whether only changed models and their dependents are regenerated
+	 */
+	public Property<Boolean> getIncremental() {
+		return incremental;
+	}
+	
+	/**
+	 * @return whether independent models are generated in parallel partitions
+	 * @see GenerateTask#getPartitioned()
+	 */
+	public Property<Boolean> getPartitioned() {
+		return partitioned;
+	}
+	
+	/**
+	 * @return the include patterns of explicit partitions
+	 * @see GenerateTask#getPartitions()
+	 */
+	public ListProperty<String> getPartitions() {
+		return partitions;
+	}
+	
+	/**
+	 * @return the maximum number of partitions that are generated in parallel
+	 */
+	public Property<Integer> getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * @return the isolation mode of the generator, one of {@code process}, {@code classLoader} or {@code none}
+	 * @see GenerateTask#getIsolation()
+	 */
+	public Property<String> getIsolation() {
+		return isolation;
+	}
+	
+	/**
+	 * @return the maximum heap size of the generator worker process
+	 */
+	public Property<String> getMaxHeapSize() {
+		return maxHeapSize;
+	}
+	
+	/**
+	 * @return the initial heap size of the generator worker process
+	 */
+	public Property<String> getMinHeapSize() {
+		return minHeapSize;
+	}
+	
+	/**
+	 * @return the name of the garbage collector of the generator worker process
+	 * @see GenerateTask#getGarbageCollector()
+	 */
+	public Property<String> getGarbageCollector() {
+		return garbageCollector;
+	}
+	
+	/**
+	 * @return additional JVM arguments of the generator worker process
+	 */
+	public ListProperty<String> getJvmArgs() {
+		return jvmArgs;
+	}
+	
+	/**
+	 * @return whether the generator worker processes share an archive of the generator classes
+	 * @see GenerateTask#getClassDataSharing()
+	 */
+	public Property<Boolean> getClassDataSharing() {
+		return classDataSharing;
+	}
+	
+	/**
+	 * @return the patterns of the environment variables forwarded to the generator worker process
+	 * @see GenerateTask#getEnvironmentAllowlist()
+	 */
+	public ListProperty<String> getEnvironmentAllowlist() {
+		return environmentAllowlist;
+	}
+	
+	/**
+	 * @return whether the generator worker gets content-addressed copies of the generator jars
+	 * @see GenerateTask#getStableClasspath()
+	 */
+	public Property<Boolean> getStableClasspath() {
+		return stableClasspath;
+	}
+	
+	/**
+	 * @return whether the generator arguments are passed in a compact argument file
+	 * @see GenerateTask#getArgumentFile()
+	 */
+	public Property<Boolean> getArgumentFile() {
+		return argumentFile;
+	}
+	
+	/**
+	 * @return whether the {@code generate} task also starts and initializes the generator worker in advance
+	 * @see GeneratorWarmUpTask
+	 */
+	public Property<Boolean> getWarmUp() {
+		return warmUp;
 	}
 	
 	/**
@@ -0,0 +1,266 @@
+package de.protos.etrice.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed copies of the jars of a generator classpath.
+ * Each jar is copied to a directory named after the hash of its content, so a jar keeps its location as long as its content is unchanged,
+ * even if it is rebuilt or resolved to another path.
+ * Gradle matches worker processes and class loaders by the classpath, thus workers are also reused after such changes.
+ * Directories on the classpath are used as they are.
+ * The copies of a content hash are marked as used whenever they are resolved,
+ * copies that have not been used for {@value #MAX_UNUSED_DAYS} days are deleted once per Gradle daemon.
+ * Each daemon holds a shared lock on the cache from its first resolution until it stops, since its workers keep the copies open.
+ * The copies are only deleted under an exclusive lock, i.e. if no other daemon uses the cache.
+ */
+class StableClasspath {
+	
+	/** the directory of the copied jars relative to the Gradle user home */
+	public static final String CACHE_DIR = "caches/etrice/generator-classpath";
+	
+	/** the number of days after which unused copies are deleted */
+	public static final int MAX_UNUSED_DAYS = 30;
+	
+	private static final String LOCK_FILE_NAME = "cache.lock";
+	private static final long MARK_INTERVAL_MILLIS = TimeUnit.DAYS.toMillis(1);
+	
+	private static final Map<File, FileHash> FILE_HASHES = new ConcurrentHashMap<>();
+	private static final Map<File, FileLock> USE_LOCKS = new HashMap<>();
+	
+	/**
+	 * Copies the jars of a classpath to the cache unless they are already there.
+	 * 
+	 * @param cacheDir the directory of the copied jars
+	 * @param classpath the generator classpath
+	 * @return the classpath with the copied jars in place of the original ones
+	 */
+	public static List<File> resolve(File cacheDir, Iterable<File> classpath) {
+		lock(cacheDir);
+		List<File> files = new ArrayList<>();
+		for(File file : classpath) {
+			if(file.isFile()) {
+				File hashDir = new File(cacheDir, toHex(getHash(file)));
+				File stableFile = new File(hashDir, file.getName());
+				if(!stableFile.isFile())
+					copy(file, stableFile);
+				markUsed(hashDir);
+				files.add(stableFile);
+			}
+			else {
+				files.add(file);
+			}
+		}
+		return files;
+	}
+	
+	/**
+	 * The hash of a classpath entry is reused as long as its size and modification time are unchanged.
+	 * 
+	 * @param file a jar or directory of the classpath
+	 * @return the hash of the contents of the file or of all files in the directory
+	 */
+	public static byte[] getHash(File file) {
+		FileHash hash = FILE_HASHES.get(file);
+		long size = file.length();
+		long lastModified = file.lastModified();
+		if(hash == null || hash.size != size || hash.lastModified != lastModified) {
+			hash = new FileHash(size, lastModified, computeHash(file));
+			FILE_HASHES.put(file, hash);
+		}
+		return hash.hash;
+	}
+	
+	/**
+	 * @param bytes any bytes
+	 * @return the lower case hex encoding of the bytes
+	 */
+	public static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder();
+		for(byte b : bytes) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+	
+	/**
+	 * @return a new SHA-1 digest
+	 */
+	static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		}
+		catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private static byte[] computeHash(File file) {
+		MessageDigest digest = createDigest();
+		byte[] buffer = new byte[8192];
+		try(Stream<Path> paths = file.exists() ? Files.walk(file.toPath()) : Stream.empty()) {
+			for(Path path : paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+				digest.update(file.toPath().relativize(path).toString().getBytes(StandardCharsets.UTF_8));
+				try(InputStream in = Files.newInputStream(path)) {
+					for(int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+						digest.update(buffer, 0, n);
+					}
+				}
+			}
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return digest.digest();
+	}
+	
+	/**
+	 * Marks the copies of a content hash as used by the modification time of their directory.
+	 * The time is only updated once a day to keep the file system writes low.
+	 * 
+	 * @param hashDir the directory of the copies
+	 */
+	private static void markUsed(File hashDir) {
+		long now = System.currentTimeMillis();
+		if(now - hashDir.lastModified() > MARK_INTERVAL_MILLIS)
+			hashDir.setLastModified(now);
+	}
+	
+	/**
+	 * Takes the shared lock of this daemon on the cache unless it already holds it.
+	 * Before, the unused copies are deleted if the exclusive lock is available.
+	 * The lock is never released, it is freed when the daemon stops.
+	 * 
+	 * @param cacheDir the directory of the copied jars
+	 */
+	private static synchronized void lock(File cacheDir) {
+		if(USE_LOCKS.containsKey(cacheDir))
+			return;
+		FileChannel channel = null;
+		try {
+			Files.createDirectories(cacheDir.toPath());
+			channel = FileChannel.open(new File(cacheDir, LOCK_FILE_NAME).toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			FileLock cleanUpLock = channel.tryLock();
+			if(cleanUpLock != null) {
+				try {
+					cleanUp(cacheDir);
+				}
+				finally {
+					cleanUpLock.release();
+				}
+			}
+			// Another daemon may clean up in between, this daemon does not use any copy before it holds the shared lock.
+			USE_LOCKS.put(cacheDir, channel.lock(0, Long.MAX_VALUE, true));
+		}
+		catch(IOException e) {
+			closeQuietly(channel);
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * @param channel the channel to close or {@code null}
+	 */
+	private static void closeQuietly(FileChannel channel) {
+		if(channel == null)
+			return;
+		try {
+			channel.close();
+		}
+		catch(IOException e) {
+			// The lock of the channel is freed with the daemon anyway.
+		}
+	}
+	
+	/**
+	 * Deletes the copies that have not been used for {@value #MAX_UNUSED_DAYS} days.
+	 * The caller holds the exclusive lock on the cache, so no other daemon uses the copies.
+	 * Copies that cannot be deleted, e.g. because a worker of a crashed daemon still has them open, are kept.
+	 * 
+	 * @param cacheDir the directory of the copied jars
+	 */
+	private static void cleanUp(File cacheDir) {
+		File[] hashDirs = cacheDir.listFiles(File::isDirectory);
+		if(hashDirs == null)
+			return;
+		long minLastUsed = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(MAX_UNUSED_DAYS);
+		for(File hashDir : hashDirs) {
+			if(hashDir.lastModified() >= minLastUsed)
+				continue;
+			try(Stream<Path> paths = Files.walk(hashDir.toPath())) {
+				for(Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+					Files.deleteIfExists(path);
+				}
+			}
+			catch(IOException e) {
+				// The copies are still open, they are deleted by a later daemon.
+			}
+		}
+	}
+	
+	/**
+	 * Copies a jar to the cache.
+	 * The copy is moved atomically into place, so concurrent builds never see a partially written jar.
+	 * 
+	 * @param file the original jar
+	 * @param stableFile the location in the cache
+	 */
+	private static void copy(File file, File stableFile) {
+		try {
+			Path dir = Files.createDirectories(stableFile.getParentFile().toPath());
+			Path tmpPath = Files.createTempFile(dir, stableFile.getName(), ".tmp");
+			try {
+				Files.copy(file.toPath(), tmpPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+				Files.move(tmpPath, stableFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch(IOException e) {
+				// Another build may have copied the same content meanwhile and still uses it.
+				if(!stableFile.isFile())
+					throw e;
+			}
+			finally {
+				Files.deleteIfExists(tmpPath);
+			}
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * The content hash of a classpath entry.
+	 */
+	private static class FileHash {
+		
+		private final long size;
+		private final long lastModified;
+		private final byte[] hash;
+		
+		public FileHash(long size, long lastModified, byte[] hash) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.hash = hash;
+		}
+	}
+
+}
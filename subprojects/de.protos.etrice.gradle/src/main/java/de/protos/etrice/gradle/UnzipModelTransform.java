@@ -0,0 +1,66 @@
+package de.protos.etrice.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.gradle.api.artifacts.transform.CacheableTransform;
+import org.gradle.api.artifacts.transform.InputArtifact;
+import org.gradle.api.artifacts.transform.TransformAction;
+import org.gradle.api.artifacts.transform.TransformOutputs;
+import org.gradle.api.artifacts.transform.TransformParameters;
+import org.gradle.api.file.FileSystemLocation;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
+/**
+ * Extracts a model zip or jar into a directory.
+ * Gradle keeps the result in its transform cache, so each library version is extracted only once
+ * and the directory is shared by all projects and builds that put the library on the modelpath.
+ * Class files of jars are skipped since they are irrelevant for the generator.
+ */
+@CacheableTransform
+public abstract class UnzipModelTransform implements TransformAction<TransformParameters.None> {
+	
+	/**
+	 * @return the archive to extract
+	 */
+	@InputArtifact
+	@PathSensitive(PathSensitivity.NAME_ONLY)
+	public abstract Provider<FileSystemLocation> getInputArtifact();
+	
+	@Override
+	public void transform(TransformOutputs outputs) {
+		File archive = getInputArtifact().get().getAsFile();
+		String name = archive.getName();
+		int extension = name.lastIndexOf('.');
+		Path outputDir = outputs.dir(extension > 0 ? name.substring(0, extension) : name).toPath().normalize();
+		try(ZipFile zipFile = new ZipFile(archive)) {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			while(entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if(entry.isDirectory() || entry.getName().endsWith(".class"))
+					continue;
+				Path file = outputDir.resolve(entry.getName()).normalize();
+				if(!file.startsWith(outputDir))
+					throw new IllegalArgumentException("zip entry '" + entry.getName() + "' of " + archive + " is outside of the target directory");
+				Files.createDirectories(file.getParent());
+				try(InputStream in = zipFile.getInputStream(entry)) {
+					Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,15 @@
+package de.protos.etrice.gradle;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.workers.WorkParameters;
+
+/**
+ * The parameters of the {@link UnzipWorker}.
+ */
+public interface UnzipParameters extends WorkParameters {
+	RegularFileProperty getArchive();
+	DirectoryProperty getDestination();
+	ListProperty<String> getEntries();
+}
@@ -1,31 +1,67 @@
 package de.protos.etrice.gradle;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
 import javax.inject.Inject;
 
 import org.gradle.api.file.ArchiveOperations;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.FileSystemOperations;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.SourceTask;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 
 /**
  * Extracts files from archives.
+ * In incremental mode only the entries whose size or CRC differ from the files on disk are extracted
+ * and files that are not contained in any archive are removed.
+ * Unchanged files keep their timestamps and the archives are extracted in parallel.
+ * A manifest of the extracted entries avoids reading the files again as long as they keep their size and modification time.
  */
 public abstract class UnzipTask extends SourceTask {
 	
+	private static final int BUFFER_SIZE = 8192;
+	private static final String MANIFEST_FILE = "manifest.properties";
+	
 	private final FileSystemOperations fileSystemOperations;
 	private final ArchiveOperations archiveOperations;
-
+	private final WorkerExecutor workerExecutor;
+	
 	private final DirectoryProperty destination;
+	private final Property<Boolean> incremental;
 	
 	@Inject
-	public UnzipTask(FileSystemOperations fileSystemOperations, ArchiveOperations archiveOperations, ObjectFactory objects) {
+	public UnzipTask(FileSystemOperations fileSystemOperations, ArchiveOperations archiveOperations, WorkerExecutor workerExecutor, ObjectFactory objects) {
 		this.fileSystemOperations = fileSystemOperations;
 		this.archiveOperations = archiveOperations;
-
+		this.workerExecutor = workerExecutor;
+		
 		destination = objects.directoryProperty();
+		incremental = objects.property(Boolean.class).convention(false);
 	}
 	
 	/**
@@ -36,12 +72,188 @@ public abstract class UnzipTask extends SourceTask {
 		return destination;
 	}
 	
+	/**
+	 * In incremental mode, all files of the destination directory that are not contained in any archive are deleted,
+	 * including files that were added by other tasks.
+	 * 
+	 * @return whether only changed entries are extracted, defaults to false
+	 */
+	@Input
+	public Property<Boolean> getIncremental() {
+		return incremental;
+	}
+	
 	@TaskAction
 	protected void sync() {
-		fileSystemOperations.sync(syncSpec -> {
-			getSource().forEach(file -> syncSpec.from(archiveOperations.zipTree(file)));
-			syncSpec.into(destination.get().getAsFile());
-		});
+		if(incremental.get()) {
+			syncIncrementally();
+		}
+		else {
+			fileSystemOperations.sync(syncSpec -> {
+				getSource().forEach(file -> syncSpec.from(archiveOperations.zipTree(file)));
+				syncSpec.into(destination.get().getAsFile());
+			});
+		}
+	}
+	
+	/**
+	 * Compares the entries of the central directories of the archives with the files of the destination directory.
+	 * Changed entries are extracted by one worker per archive, stale files are deleted.
+	 * If several archives contain the same entry, the entry of the last archive wins.
+	 */
+	private void syncIncrementally() {
+		Path destinationDir = destination.get().getAsFile().toPath().normalize();
+		Map<String, File> entryArchives = new LinkedHashMap<>();
+		Map<String, ZipEntry> entries = new LinkedHashMap<>();
+		Set<String> directories = new HashSet<>();
+		for(File archive : getSource()) {
+			try(ZipFile zipFile = new ZipFile(archive)) {
+				zipFile.stream().forEach(entry -> {
+					String name = entry.getName();
+					if(!destinationDir.resolve(name).normalize().startsWith(destinationDir))
+						throw new IllegalArgumentException("zip entry '" + name + "' of " + archive + " is outside of the target directory");
+					if(entry.isDirectory()) {
+						directories.add(trimTrailingSlash(name));
+					}
+					else {
+						entryArchives.put(name, archive);
+						entries.put(name, entry);
+					}
+				});
+			}
+			catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		File manifestFile = new File(getTemporaryDir(), MANIFEST_FILE);
+		try {
+			Properties manifest = readManifest(manifestFile);
+			manifestFile.delete();
+			deleteStaleFiles(destinationDir, entries.keySet(), directories);
+			Map<File, List<String>> changedEntries = new LinkedHashMap<>();
+			for(Map.Entry<String, ZipEntry> entry : entries.entrySet()) {
+				if(!isUnchanged(destinationDir.resolve(entry.getKey()), entry.getValue(), manifest.getProperty(entry.getKey())))
+					changedEntries.computeIfAbsent(entryArchives.get(entry.getKey()), archive -> new ArrayList<>()).add(entry.getKey());
+			}
+			for(String directory : directories)
+				Files.createDirectories(destinationDir.resolve(directory));
+			
+			getLogger().info("Extracting {} of {} files", changedEntries.values().stream().mapToInt(List::size).sum(), entries.size());
+			WorkQueue queue = workerExecutor.noIsolation();
+			changedEntries.forEach((archive, names) -> queue.submit(UnzipWorker.class, parameters -> {
+				parameters.getArchive().set(archive);
+				parameters.getDestination().set(destinationDir.toFile());
+				parameters.getEntries().set(names);
+			}));
+			queue.await();
+			writeManifest(manifestFile, destinationDir, entries);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * @param manifestFile the manifest of the previous execution
+	 * @return the recorded state of each extracted entry by its name, empty if the manifest does not exist
+	 */
+	private static Properties readManifest(File manifestFile) throws IOException {
+		Properties manifest = new Properties();
+		if(manifestFile.isFile()) {
+			try(InputStream in = Files.newInputStream(manifestFile.toPath())) {
+				manifest.load(in);
+			}
+		}
+		return manifest;
+	}
+	
+	/**
+	 * Records the state of the extracted files that match their entries.
+	 * 
+	 * @param manifestFile the file to write to
+	 * @param destinationDir the destination directory
+	 * @param entries the entries of the archives by their name
+	 */
+	private static void writeManifest(File manifestFile, Path destinationDir, Map<String, ZipEntry> entries) throws IOException {
+		Properties manifest = new Properties();
+		for(Map.Entry<String, ZipEntry> entry : entries.entrySet()) {
+			Path file = destinationDir.resolve(entry.getKey());
+			if(Files.isRegularFile(file) && entry.getValue().getCrc() != -1 && Files.size(file) == entry.getValue().getSize())
+				manifest.setProperty(entry.getKey(), getManifestValue(file, entry.getValue()));
+		}
+		try(OutputStream out = Files.newOutputStream(manifestFile.toPath())) {
+			manifest.store(out, null);
+		}
+	}
+	
+	/**
+	 * @param file the extracted file
+	 * @param entry the entry of the archive
+	 * @return the size and CRC of the entry and the modification time of the file
+	 */
+	private static String getManifestValue(Path file, ZipEntry entry) throws IOException {
+		return entry.getSize() + " " + entry.getCrc() + " " + Files.getLastModifiedTime(file).toMillis();
+	}
+	
+	/**
+	 * Deletes the files and empty directories of the destination directory that are not contained in any archive.
+	 * 
+	 * @param destinationDir the destination directory
+	 * @param files the relative paths of all files of the archives
+	 * @param directories the relative paths of all directories of the archives
+	 */
+	private static void deleteStaleFiles(Path destinationDir, Set<String> files, Set<String> directories) throws IOException {
+		if(!Files.isDirectory(destinationDir))
+			return;
+		List<Path> paths;
+		try(Stream<Path> stream = Files.walk(destinationDir)) {
+			paths = stream.filter(path -> !path.equals(destinationDir))
+				.sorted(Comparator.reverseOrder())
+				.collect(Collectors.toList());
+		}
+		for(Path path : paths) {
+			String name = destinationDir.relativize(path).toString().replace(File.separatorChar, '/');
+			if(Files.isDirectory(path)) {
+				if(!directories.contains(name) && isEmpty(path))
+					Files.delete(path);
+			}
+			else if(!files.contains(name)) {
+				Files.delete(path);
+			}
+		}
+	}
+	
+	/**
+	 * @param file the file on disk
+	 * @param entry the entry of the archive
+	 * @param recorded the state of the file in the manifest or {@code null} if it is not recorded
+	 * @return true if the file has the size and CRC of the entry
+	 */
+	private static boolean isUnchanged(Path file, ZipEntry entry, String recorded) throws IOException {
+		if(!Files.isRegularFile(file) || entry.getCrc() == -1 || Files.size(file) != entry.getSize())
+			return false;
+		// The file has not been touched since it was extracted or compared with the same entry.
+		if(getManifestValue(file, entry).equals(recorded))
+			return true;
+		CRC32 crc = new CRC32();
+		try(InputStream in = Files.newInputStream(file)) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int length;
+			while((length = in.read(buffer)) != -1)
+				crc.update(buffer, 0, length);
+		}
+		return crc.getValue() == entry.getCrc();
+	}
+	
+	private static boolean isEmpty(Path dir) throws IOException {
+		try(Stream<Path> stream = Files.list(dir)) {
+			return !stream.findAny().isPresent();
+		}
+	}
+	
+	private static String trimTrailingSlash(String name) {
+		return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
 	}
 
 }
@@ -0,0 +1,38 @@
+package de.protos.etrice.gradle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.gradle.workers.WorkAction;
+
+/**
+ * Gradle worker that extracts selected entries of an archive.
+ * Existing files are replaced, all other files of the destination directory are left untouched.
+ */
+public abstract class UnzipWorker implements WorkAction<UnzipParameters> {
+	
+	@Override
+	public void execute() {
+		Path destination = getParameters().getDestination().get().getAsFile().toPath();
+		try(ZipFile zipFile = new ZipFile(getParameters().getArchive().get().getAsFile())) {
+			for(String name : getParameters().getEntries().get()) {
+				ZipEntry entry = zipFile.getEntry(name);
+				Path file = destination.resolve(name);
+				Files.createDirectories(file.getParent());
+				try(InputStream in = zipFile.getInputStream(entry)) {
+					Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+package de.protos.etrice.gradle;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * The effective configuration of a generator worker, used to explain why a work item could not reuse an existing worker.
+ * Gradle only reuses a worker process or class loader if the classpath and, in process isolation, the fork options are equal.
+ * The fingerprints of the workers requested in this Gradle daemon are remembered, a new fingerprint is compared with the most similar one.
+ * Environment variables are compared by a hash of their value, so that their values are never reported.
+ */
+class WorkerFingerprint {
+	
+	private static final int MAX_KNOWN_FINGERPRINTS = 32;
+	private static final int MAX_REPORTED_NAMES = 10;
+	private static final Deque<WorkerFingerprint> KNOWN_FINGERPRINTS = new ArrayDeque<>();
+	
+	private final String isolation;
+	private final List<String> classpath = new ArrayList<>();
+	private final List<String> forkOptions;
+	private final Map<String, Integer> environment = new TreeMap<>();
+	
+	/**
+	 * @param isolation the isolation mode
+	 * @param classpath the classpath of the worker
+	 * @param forkOptions the JVM arguments and heap sizes of a worker process
+	 * @param environment the environment variables of a worker process
+	 */
+	public WorkerFingerprint(String isolation, List<File> classpath, List<String> forkOptions, Map<String, String> environment) {
+		this.isolation = isolation;
+		classpath.forEach(file -> this.classpath.add(file.getPath()));
+		this.forkOptions = forkOptions;
+		environment.forEach((name, value) -> this.environment.put(name, value.hashCode()));
+	}
+	
+	/**
+	 * Remembers this fingerprint for the following work items of this daemon.
+	 * 
+	 * @return the reason why a worker with this fingerprint has to be spawned
+	 */
+	public String register() {
+		synchronized(KNOWN_FINGERPRINTS) {
+			WorkerFingerprint closest = null;
+			int closestDistance = Integer.MAX_VALUE;
+			for(WorkerFingerprint known : KNOWN_FINGERPRINTS) {
+				List<String> differences = getDifferences(known);
+				if(differences.isEmpty()) {
+					KNOWN_FINGERPRINTS.remove(known);
+					KNOWN_FINGERPRINTS.addFirst(known);
+					return "all workers with the same configuration were busy or have been stopped, e.g. at the end of a previous build";
+				}
+				if(differences.size() < closestDistance) {
+					closest = known;
+					closestDistance = differences.size();
+				}
+			}
+			KNOWN_FINGERPRINTS.addFirst(this);
+			if(KNOWN_FINGERPRINTS.size() > MAX_KNOWN_FINGERPRINTS)
+				KNOWN_FINGERPRINTS.removeLast();
+			if(closest == null)
+				return "first worker of this configuration in the daemon";
+			return "the configuration differs from an existing worker in " + String.join("; ", getDifferences(closest));
+		}
+	}
+	
+	/**
+	 * @return a key that is equal for fingerprints without differences
+	 */
+	public String getKey() {
+		return isolation + '\n' + String.join(File.pathSeparator, classpath) + '\n' + String.join(" ", forkOptions) + '\n' + environment;
+	}
+	
+	/**
+	 * @param other another fingerprint
+	 * @return a description of each differing part of the configuration, empty if the fingerprints are equal
+	 */
+	List<String> getDifferences(WorkerFingerprint other) {
+		List<String> differences = new ArrayList<>();
+		if(!isolation.equals(other.isolation))
+			differences.add("isolation " + other.isolation + " -> " + isolation);
+		if(!classpath.equals(other.classpath))
+			differences.add("classpath " + describeChanges(other.classpath, classpath));
+		if(!forkOptions.equals(other.forkOptions))
+			differences.add("JVM arguments " + describeChanges(other.forkOptions, forkOptions));
+		if(!environment.equals(other.environment)) {
+			Set<String> names = new TreeSet<>(environment.keySet());
+			names.addAll(other.environment.keySet());
+			names.removeIf(name -> Objects.equals(environment.get(name), other.environment.get(name)));
+			differences.add("environment variables " + names.stream().limit(MAX_REPORTED_NAMES).collect(Collectors.joining(" "))
+				+ (names.size() > MAX_REPORTED_NAMES ? " and " + (names.size() - MAX_REPORTED_NAMES) + " more" : ""));
+		}
+		return differences;
+	}
+	
+	/**
+	 * @param before the previous values
+	 * @param after the current values
+	 * @return the added and removed values or the note that just the order has changed
+	 */
+	private static String describeChanges(List<String> before, List<String> after) {
+		Set<String> added = new LinkedHashSet<>(after);
+		added.removeAll(before);
+		Set<String> removed = new LinkedHashSet<>(before);
+		removed.removeAll(after);
+		if(added.isEmpty() && removed.isEmpty())
+			return "(order)";
+		List<String> changes = new ArrayList<>();
+		added.forEach(value -> changes.add("+" + value));
+		removed.forEach(value -> changes.add("-" + value));
+		return "(" + String.join(" ", changes) + ")";
+	}
+
+}
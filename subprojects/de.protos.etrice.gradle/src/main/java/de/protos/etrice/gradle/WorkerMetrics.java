@@ -0,0 +1,302 @@
+package de.protos.etrice.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Timings of a single work item measured inside the worker.
+ * The worker may run in another process, therefore the metrics are exchanged through a file.
+ */
+class WorkerMetrics {
+	
+	private static final AtomicBoolean STARTED = new AtomicBoolean(false);
+	
+	private long queueWait;
+	private boolean workerSpawned;
+	private String workerSpawnReason;
+	private boolean applicationCreated;
+	private long initTime;
+	private long runTime;
+	private boolean failed;
+	private int outputFiles;
+	private long outputBytes;
+	private int writtenFiles;
+	private long syncTime;
+	private int cacheEvictions;
+	private boolean recycled;
+	private long retainedHeap;
+	private long startupTime;
+	private long startupSaved;
+	private long completionTime;
+	
+	/**
+	 * Marks the worker as started in the current process or class loader.
+	 * 
+	 * @return true if this is the first work item of a new worker, false if the worker is reused
+	 */
+	public static boolean start() {
+		return !STARTED.getAndSet(true);
+	}
+	
+	/**
+	 * @param file the file written by {@link #write(File)}
+	 * @return the metrics of the file or {@code null} if the file does not exist
+	 */
+	public static WorkerMetrics read(File file) {
+		if(!file.isFile())
+			return null;
+		Properties properties = new Properties();
+		try(InputStream in = Files.newInputStream(file.toPath())) {
+			properties.load(in);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		WorkerMetrics metrics = new WorkerMetrics();
+		metrics.queueWait = Long.parseLong(properties.getProperty("queueWait", "0"));
+		metrics.workerSpawned = Boolean.parseBoolean(properties.getProperty("workerSpawned"));
+		metrics.workerSpawnReason = properties.getProperty("workerSpawnReason");
+		metrics.applicationCreated = Boolean.parseBoolean(properties.getProperty("applicationCreated"));
+		metrics.initTime = Long.parseLong(properties.getProperty("initTime", "0"));
+		metrics.runTime = Long.parseLong(properties.getProperty("runTime", "0"));
+		metrics.failed = Boolean.parseBoolean(properties.getProperty("failed"));
+		metrics.outputFiles = Integer.parseInt(properties.getProperty("outputFiles", "0"));
+		metrics.outputBytes = Long.parseLong(properties.getProperty("outputBytes", "0"));
+		metrics.writtenFiles = Integer.parseInt(properties.getProperty("writtenFiles", "0"));
+		metrics.syncTime = Long.parseLong(properties.getProperty("syncTime", "0"));
+		metrics.cacheEvictions = Integer.parseInt(properties.getProperty("cacheEvictions", "0"));
+		metrics.recycled = Boolean.parseBoolean(properties.getProperty("recycled"));
+		metrics.retainedHeap = Long.parseLong(properties.getProperty("retainedHeap", "0"));
+		metrics.startupTime = Long.parseLong(properties.getProperty("startupTime", "0"));
+		metrics.startupSaved = Long.parseLong(properties.getProperty("startupSaved", "0"));
+		metrics.completionTime = Long.parseLong(properties.getProperty("completionTime", "0"));
+		return metrics;
+	}
+	
+	/**
+	 * @param file the file to write the metrics to
+	 */
+	public void write(File file) {
+		Properties properties = new Properties();
+		properties.setProperty("queueWait", String.valueOf(queueWait));
+		properties.setProperty("workerSpawned", String.valueOf(workerSpawned));
+		if(workerSpawnReason != null)
+			properties.setProperty("workerSpawnReason", workerSpawnReason);
+		properties.setProperty("applicationCreated", String.valueOf(applicationCreated));
+		properties.setProperty("initTime", String.valueOf(initTime));
+		properties.setProperty("runTime", String.valueOf(runTime));
+		properties.setProperty("failed", String.valueOf(failed));
+		properties.setProperty("outputFiles", String.valueOf(outputFiles));
+		properties.setProperty("outputBytes", String.valueOf(outputBytes));
+		properties.setProperty("writtenFiles", String.valueOf(writtenFiles));
+		properties.setProperty("syncTime", String.valueOf(syncTime));
+		properties.setProperty("cacheEvictions", String.valueOf(cacheEvictions));
+		properties.setProperty("recycled", String.valueOf(recycled));
+		properties.setProperty("retainedHeap", String.valueOf(retainedHeap));
+		properties.setProperty("startupTime", String.valueOf(startupTime));
+		properties.setProperty("startupSaved", String.valueOf(startupSaved));
+		properties.setProperty("completionTime", String.valueOf(completionTime));
+		try(OutputStream out = Files.newOutputStream(file.toPath())) {
+			properties.store(out, null);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * @return the time in milliseconds between the submission of the work and its start in the worker
+	 */
+	public long getQueueWait() {
+		return queueWait;
+	}
+	
+	public void setQueueWait(long queueWait) {
+		this.queueWait = queueWait;
+	}
+	
+	/**
+	 * @return true if the work item was the first one of a new worker
+	 */
+	public boolean isWorkerSpawned() {
+		return workerSpawned;
+	}
+	
+	public void setWorkerSpawned(boolean workerSpawned) {
+		this.workerSpawned = workerSpawned;
+	}
+	
+	/**
+	 * @return the reason why the work item could not reuse an existing worker, {@code null} if unknown or if the worker was reused
+	 */
+	public String getWorkerSpawnReason() {
+		return workerSpawnReason;
+	}
+	
+	public void setWorkerSpawnReason(String workerSpawnReason) {
+		this.workerSpawnReason = workerSpawnReason;
+	}
+	
+	/**
+	 * @return true if a generator application was created for the work item
+	 */
+	public boolean isApplicationCreated() {
+		return applicationCreated;
+	}
+	
+	public void setApplicationCreated(boolean applicationCreated) {
+		this.applicationCreated = applicationCreated;
+	}
+	
+	/**
+	 * @return the time in milliseconds to create the generator application
+	 */
+	public long getInitTime() {
+		return initTime;
+	}
+	
+	public void setInitTime(long initTime) {
+		this.initTime = initTime;
+	}
+	
+	/**
+	 * @return the time in milliseconds to run the work item
+	 */
+	public long getRunTime() {
+		return runTime;
+	}
+	
+	public void setRunTime(long runTime) {
+		this.runTime = runTime;
+	}
+	
+	/**
+	 * @return true if the generator run of the work item failed
+	 */
+	public boolean isFailed() {
+		return failed;
+	}
+	
+	public void setFailed(boolean failed) {
+		this.failed = failed;
+	}
+	
+	/**
+	 * @return the number of generated files if the worker transferred them to the target directory, otherwise 0
+	 */
+	public int getOutputFiles() {
+		return outputFiles;
+	}
+	
+	/**
+	 * @return the total size of the generated files if the worker transferred them to the target directory, otherwise 0
+	 */
+	public long getOutputBytes() {
+		return outputBytes;
+	}
+	
+	/**
+	 * @return the number of files the worker has written to the target directory
+	 */
+	public int getWrittenFiles() {
+		return writtenFiles;
+	}
+	
+	/**
+	 * @return the time in milliseconds to transfer the generated files to the target directory
+	 */
+	public long getSyncTime() {
+		return syncTime;
+	}
+	
+	/**
+	 * Records the transfer of the generated files by the worker.
+	 * 
+	 * @param outputFiles the number of generated files
+	 * @param outputBytes the total size of the generated files
+	 * @param writtenFiles the number of files written to the target directory
+	 * @param syncTime the time in milliseconds of the transfer
+	 */
+	public void setSync(int outputFiles, long outputBytes, int writtenFiles, long syncTime) {
+		this.outputFiles = outputFiles;
+		this.outputBytes = outputBytes;
+		this.writtenFiles = writtenFiles;
+		this.syncTime = syncTime;
+	}
+	
+	/**
+	 * @return the number of generator applications evicted from the cache of the worker
+	 */
+	public int getCacheEvictions() {
+		return cacheEvictions;
+	}
+	
+	public void addCacheEvictions(int cacheEvictions) {
+		this.cacheEvictions += cacheEvictions;
+	}
+	
+	/**
+	 * @return true if the worker released all generator applications after the run
+	 */
+	public boolean isRecycled() {
+		return recycled;
+	}
+	
+	public void setRecycled(boolean recycled) {
+		this.recycled = recycled;
+	}
+	
+	/**
+	 * @return the used heap in bytes of the worker after the last garbage collection
+	 */
+	public long getRetainedHeap() {
+		return retainedHeap;
+	}
+	
+	public void setRetainedHeap(long retainedHeap) {
+		this.retainedHeap = retainedHeap;
+	}
+	
+	/**
+	 * @return the time in milliseconds from the start of a new worker process until its generator application was created, 0 if not measured
+	 */
+	public long getStartupTime() {
+		return startupTime;
+	}
+	
+	/**
+	 * @return the startup time in milliseconds saved by class data sharing compared to the worker that created the archive
+	 */
+	public long getStartupSaved() {
+		return startupSaved;
+	}
+	
+	/**
+	 * Records the startup of a new worker process that uses class data sharing.
+	 * 
+	 * @param startupTime the time in milliseconds from the start of the JVM until the generator application was created
+	 * @param startupSaved the time in milliseconds saved by class data sharing
+	 */
+	public void setStartup(long startupTime, long startupSaved) {
+		this.startupTime = startupTime;
+		this.startupSaved = startupSaved;
+	}
+	
+	/**
+	 * @return the time in milliseconds since the epoch when the worker completed the work item, 0 if unknown
+	 */
+	public long getCompletionTime() {
+		return completionTime;
+	}
+	
+	public void setCompletionTime(long completionTime) {
+		this.completionTime = completionTime;
+	}
+	
+}
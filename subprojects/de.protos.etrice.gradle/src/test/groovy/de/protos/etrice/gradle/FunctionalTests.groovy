@@ -1,6 +1,7 @@
 package de.protos.etrice.gradle
 
 import org.junit.jupiter.api.Test
+import org.gradle.api.JavaVersion
 import org.gradle.testkit.runner.TaskOutcome
 
 public class FunctionalTests {
@@ -155,6 +156,950 @@ GradleProjectBuilder.build("etriceMultiProjectTest") {
 	}
 }}
 
+@Test
+void "report generator failures per task in parallel batch"() {
+def rootBuildFile = """\
+plugins {
+	id 'de.protos.etrice-c' apply false
+}
+subprojects {
+	apply plugin: 'de.protos.etrice-c'
+	${repositories}
+	dependencies {
+		generator 'org.eclipse.etrice:org.eclipse.etrice.generator.c:${etriceVersion}'
+	}
+}"""
+def goodRoomFile = """\
+RoomModel good {
+	ActorClass AGood {
+	}
+}"""
+def badRoomFile = """\
+RoomModel bad {
+	ActorClass ABad {
+		Structure {
+			ActorRef aref : unknown.AUnknown
+		}
+	}
+}"""
+GradleProjectBuilder.build("etriceParallelBatchTest") {
+	write("settings.gradle", "include 'good1', 'good2', 'bad'")
+	write("build.gradle", rootBuildFile)
+	write("good1/model/good.room", goodRoomFile)
+	write("good2/model/good.room", goodRoomFile)
+	write("bad/model/bad.room", badRoomFile)
+	gradleAndFail(["generate", "--parallel", "--continue"]) {
+		assert task(":good1:generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert task(":good2:generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert task(":bad:generateRoom")?.outcome == TaskOutcome.FAILED
+		assert exists("good1/build/src-gen/room/good/AGood.c")
+		assert exists("good2/build/src-gen/room/good/AGood.c")
+	}
+}}
+
+@Test
+void "bound the number of concurrent generator workers"() {
+def rootBuildFile = """\
+plugins {
+	id 'de.protos.etrice-c' apply false
+}
+subprojects {
+	apply plugin: 'de.protos.etrice-c'
+	${repositories}
+	dependencies {
+		generator 'org.eclipse.etrice:org.eclipse.etrice.generator.c:${etriceVersion}'
+	}
+}"""
+def goodRoomFile = """\
+RoomModel good {
+	ActorClass AGood {
+	}
+}"""
+def badRoomFile = """\
+RoomModel bad {
+	ActorClass ABad {
+		Structure {
+			ActorRef aref : unknown.AUnknown
+		}
+	}
+}"""
+GradleProjectBuilder.build("etriceWorkerLimitTest") {
+	write("settings.gradle", "include 'good1', 'good2', 'bad'")
+	write("gradle.properties", "etrice.generator.heapBudget=1g\netrice.generator.workerHeapSize=512m")
+	write("build.gradle", rootBuildFile)
+	write("good1/model/good.room", goodRoomFile)
+	write("good2/model/good.room", goodRoomFile)
+	write("bad/model/bad.room", badRoomFile)
+	gradleAndFail(["generate", "--parallel", "--continue"]) {
+		assert task(":good1:generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert task(":good2:generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert task(":bad:generateRoom")?.outcome == TaskOutcome.FAILED
+		assert output.contains("Code generation failed:")
+		assert exists("good1/build/src-gen/room/good/AGood.c")
+		assert exists("good2/build/src-gen/room/good/AGood.c")
+		assert exists("good1/build/etrice-manifests/generateRoom.txt")
+	}
+	def csv = projectDir.resolve("build/reports/etrice/generation-metrics.csv").toFile().readLines()
+	def header = csv[0].split(",") as List
+	def good = csv.find { it.startsWith(":good1:generateRoom,") }.split(",")
+	assert good[header.indexOf("totalMillis")].toLong() >= good[header.indexOf("runMillis")].toLong()
+	assert csv.find { it.startsWith(":bad:generateRoom,GenerateTask,true,") }
+	gradle(["generate", "-x", ":bad:generateRoom"]) {
+		assert task(":good1:generateRoom")?.outcome == TaskOutcome.UP_TO_DATE
+		assert task(":good2:generateRoom")?.outcome == TaskOutcome.UP_TO_DATE
+	}
+}}
+
+@Test
+void "warm up the generator worker before generation"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etrice-c'
+}
+${repositories}
+dependencies {
+	generator 'org.eclipse.etrice:org.eclipse.etrice.generator.c:${etriceVersion}'
+}
+modelSet {
+	room {
+		warmUp = true
+	}
+}
+// stands in for model libraries that are built while the worker warms up
+tasks.register('buildModels') {
+	mustRunAfter 'warmUpGeneratorRoom'
+}
+generateRoom.dependsOn 'buildModels'"""
+def roomFile = """\
+RoomModel test {
+	ActorClass ATest {
+	}
+}"""
+GradleProjectBuilder.build("etriceWarmUpTest") {
+	write("build.gradle", buildFile)
+	write("model/test.room", roomFile)
+	gradle("generate") {
+		assert task(":warmUpGeneratorRoom")?.outcome == TaskOutcome.SUCCESS
+		assert task(":generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert exists("build/src-gen/room/test/ATest.c")
+	}
+	def csv = projectDir.resolve("build/reports/etrice/generation-metrics.csv").toFile().readLines()
+	assert csv.any { it.startsWith(":warmUpGeneratorRoom,GeneratorWarmUpTask,false,0,0,0,0,1,") }
+	def generate = csv.find { it.startsWith(":generateRoom,") }.split(",")
+	assert generate[8] == "0"  // no worker was spawned for the generate task
+	assert generate[9] == "1"  // the worker of the warm-up was reused
+	assert generate[10] == "0"  // the generator application was created by the warm-up
+	gradle(["build", "--rerun-tasks"]) {
+		assert task(":warmUpGeneratorRoom")?.outcome == TaskOutcome.SUCCESS
+		assert task(":generateRoom")?.outcome == TaskOutcome.SUCCESS
+	}
+	write("build.gradle", buildFile.replace("warmUp = true", "warmUp = false"))
+	gradle(["build", "--rerun-tasks"]) {
+		assert task(":warmUpGeneratorRoom") == null
+		assert task(":generateRoom")?.outcome == TaskOutcome.SUCCESS
+	}
+}}
+
+@Test
+void "recycle the generator worker above the retained heap limit"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etrice-c'
+}
+${repositories}
+dependencies {
+	generator 'org.eclipse.etrice:org.eclipse.etrice.generator.c:${etriceVersion}'
+}
+modelSet {
+	room {
+		jvmArgs.add '-Detrice.generator.retainedHeapLimit=1'
+	}
+}"""
+def roomFile = """\
+RoomModel test {
+	ActorClass ATest {
+	}
+}"""
+GradleProjectBuilder.build("etriceRecycleTest") {
+	write("build.gradle", buildFile)
+	write("model/test.room", roomFile)
+	gradle("generate") {
+		assert task(":generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert exists("build/src-gen/room/test/ATest.c")
+	}
+	def csv = projectDir.resolve("build/reports/etrice/generation-metrics.csv").toFile().readLines()
+	assert csv[0].contains(",applicationsCreated,cacheHits,cacheEvictions,workerRecycles,retainedHeapBytes,")
+	def generate = csv.find { it.startsWith(":generateRoom,") }.split(",")
+	assert generate[13] == "1"
+	assert Long.parseLong(generate[14]) > 0
+}}
+
+@Test
+void "share the generator classes between worker processes"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etrice-c'
+}
+${repositories}
+dependencies {
+	generator 'org.eclipse.etrice:org.eclipse.etrice.generator.c:${etriceVersion}'
+}
+modelSet {
+	room {
+		classDataSharing = true
+	}
+}"""
+def roomFile = """\
+RoomModel test {
+	ActorClass ATest {
+	}
+}"""
+GradleProjectBuilder.build("etriceClassDataSharingTest") {
+	write("build.gradle", buildFile)
+	write("model/test.room", roomFile)
+	gradle("generate") {
+		assert task(":generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert exists("build/src-gen/room/test/ATest.c")
+	}
+	def csv = projectDir.resolve("build/reports/etrice/generation-metrics.csv").toFile().readLines()
+	def header = csv[0].split(",") as List
+	def generate = csv.find { it.startsWith(":generateRoom,") }.split(",")
+	// a worker process with the same options may be left from a previous build
+	if(JavaVersion.current().isCompatibleWith(JavaVersion.VERSION_17) && generate[header.indexOf("workersSpawned")] == "1")
+		assert Long.parseLong(generate[header.indexOf("workerStartupMillis")]) > 0
+}}
+
+@Test
+void "report why a generator worker is spawned"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etrice-c'
+}
+${repositories}
+dependencies {
+	generator 'org.eclipse.etrice:org.eclipse.etrice.generator.c:${etriceVersion}'
+}
+modelSet {
+	room {
+		environmentAllowlist = ['PATH', 'SystemRoot', 'TEMP', 'TMP', 'TMPDIR', 'LANG', 'LC_*']
+		stableClasspath = true
+	}
+}"""
+def roomFile = """\
+RoomModel test {
+	ActorClass ATest {
+	}
+}"""
+GradleProjectBuilder.build("etriceWorkerFingerprintTest") {
+	write("build.gradle", buildFile)
+	write("model/test.room", roomFile)
+	gradle(["generate", "--info"]) {
+		assert task(":generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert exists("build/src-gen/room/test/ATest.c")
+		def csv = projectDir.resolve("build/reports/etrice/generation-metrics.csv").toFile().readLines()
+		def header = csv[0].split(",") as List
+		def generate = csv.find { it.startsWith(":generateRoom,") }.split(",")
+		if(generate[header.indexOf("workersSpawned")] == "1")
+			assert output.contains(":generateRoom spawned a new generator worker: ")
+	}
+}}
+
+@Test
+void "generate changed models incrementally"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etrice-c'
+}
+${repositories}
+dependencies {
+	generator 'org.eclipse.etrice:org.eclipse.etrice.generator.c:${etriceVersion}'
+}
+modelSet {
+	room {
+		incremental = true
+	}
+}"""
+def baseRoomFile = """\
+RoomModel base {
+	ActorClass ABase {
+	}
+}"""
+def userRoomFile = """\
+RoomModel user {
+	ActorClass AUser {
+		Structure {
+			ActorRef aref : base.ABase
+		}
+	}
+}"""
+def otherRoomFile = """\
+RoomModel other {
+	ActorClass AOther {
+	}
+}"""
+def sharedRoomFile = """\
+RoomModel other {
+	ActorClass AShared {
+	}
+}"""
+GradleProjectBuilder.build("etriceIncrementalTest") {
+	write("build.gradle", buildFile)
+	write("model/base.room", baseRoomFile)
+	write("model/user.room", userRoomFile)
+	write("model/other.room", otherRoomFile)
+	write("model/shared.room", sharedRoomFile)
+	write("build/src-gen/room/other/custom.txt", "not generated")
+	gradle("generate") {
+		assert task(":generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert exists("build/src-gen/room/other/AOther.c")
+		assert exists("build/src-gen/room/other/AShared.c")
+	}
+	def otherFile = projectDir.resolve("build/src-gen/room/other/AOther.c").toFile()
+	otherFile.setLastModified(0)
+	write("model/base.room", baseRoomFile.replace("ABase", "ABase2"))
+	write("model/user.room", userRoomFile.replace("ABase", "ABase2"))
+	gradle("generate") {
+		assert task(":generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert exists("build/src-gen/room/base/ABase2.c")
+		assert !exists("build/src-gen/room/base/ABase.c")
+		assert otherFile.lastModified() == 0
+	}
+	// the removed model shares its namespace with another model
+	delete("model/other.room")
+	gradle("generate") {
+		assert task(":generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert !exists("build/src-gen/room/other/AOther.c")
+		assert exists("build/src-gen/room/other/AShared.c")
+		assert exists("build/src-gen/room/other/custom.txt")
+		assert exists("build/src-gen/room/user/AUser.c")
+	}
+}}
+
+@Test
+void "list model dependents from model index"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etrice-c'
+}"""
+def baseRoomFile = """\
+RoomModel base {
+	ActorClass ABase {
+	}
+}"""
+def userRoomFile = """\
+RoomModel user {
+	import base.ABase
+	ActorClass AUser {
+		Structure {
+			ActorRef aref : ABase
+		}
+	}
+}"""
+def otherRoomFile = """\
+RoomModel other {
+	ActorClass AOther {
+	}
+}"""
+GradleProjectBuilder.build("etriceModelDependentsTest") {
+	write("build.gradle", buildFile)
+	write("model/base.room", baseRoomFile)
+	write("model/user.room", userRoomFile)
+	write("model/other.room", otherRoomFile)
+	gradle(["modelDependentsRoom", "--model", "model/base.room"]) {
+		assert task(":modelDependentsRoom")?.outcome == TaskOutcome.SUCCESS
+		assert output.contains("user.room")
+		assert !output.contains("other.room")
+	}
+	assert exists("build/model-index/room.bin")
+	gradle(["modelDependentsRoom", "--model", "other"]) {
+		assert !output.contains("user.room")
+	}
+}}
+
+@Test
+void "load generated files from build cache after relocation"() {
+def cacheDir = new File("build/tmp/etriceBuildCache").absoluteFile
+cacheDir.deleteDir()
+def settingsFile = """\
+buildCache {
+	local {
+		directory = file('${cacheDir.path.replace('\\', '/')}')
+	}
+}"""
+def buildFile = """\
+plugins {
+	id 'de.protos.etrice-c'
+}
+${repositories}
+dependencies {
+	generator 'org.eclipse.etrice:org.eclipse.etrice.generator.c:${etriceVersion}'
+}"""
+def roomFile = """\
+RoomModel test {
+	ActorClass ATest {
+	}
+}"""
+GradleProjectBuilder.build("etriceBuildCacheTest1") {
+	write("settings.gradle", settingsFile)
+	write("build.gradle", buildFile)
+	write("model/test.room", roomFile)
+	gradle(["generate", "--build-cache"]) {
+		assert task(":generateRoom")?.outcome == TaskOutcome.SUCCESS
+	}
+}
+GradleProjectBuilder.build("etriceBuildCacheTest2") {
+	write("settings.gradle", settingsFile)
+	write("build.gradle", buildFile)
+	write("model/test.room", roomFile)
+	gradle(["generate", "--build-cache"]) {
+		assert task(":generateRoom")?.outcome == TaskOutcome.FROM_CACHE
+		assert exists("build/src-gen/room/test/ATest.c")
+	}
+}}
+
+@Test
+void "reuse configuration cache for base plugin tasks"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etrice-base'
+}
+dependencies {
+	modelpath project(':lib')
+}
+modelSet {
+	room {
+		source.srcDir 'model'
+	}
+}"""
+def libBuildFile = """\
+plugins {
+	id 'de.protos.etrice-base'
+}
+modelSet {
+	room {
+		source.srcDir 'model'
+	}
+}"""
+GradleProjectBuilder.build("etriceBaseConfigurationCacheTest") {
+	write("settings.gradle", "include 'lib'")
+	write("build.gradle", buildFile)
+	write("lib/build.gradle", libBuildFile)
+	def tasks = ["generate", "eclipseModelpath", "zipModel", "--configuration-cache"]
+	gradle(tasks) {
+		assert output.contains("Configuration cache entry stored")
+		assert task(":eclipseModelpath")?.outcome == TaskOutcome.SUCCESS
+	}
+	gradle(tasks) {
+		assert output.contains("Reusing configuration cache.")
+		assert task(":eclipseModelpath")?.outcome == TaskOutcome.UP_TO_DATE
+		assert task(":lib:zipModel") != null
+	}
+	assert new File(projectDir.toFile(), "modelpath").text.contains("project lib")
+}}
+
+@Test
+void "reuse configuration cache for eTrice C and Java projects with libraries"() {
+def cBuildFile = """\
+plugins {
+	id 'de.protos.etrice-c'
+	id 'de.protos.model-library'
+	id 'de.protos.source-library'
+}
+${repositories}
+dependencies {
+	generator 'org.eclipse.etrice:org.eclipse.etrice.generator.c:${etriceVersion}'
+	modelLibrary 'org.eclipse.etrice:org.eclipse.etrice.modellib.c:${etriceVersion}'
+	sourceLibrary project(':lib')
+}
+modelSet {
+	room {
+		modelpath.from unzipModel.destination
+	}
+}"""
+def javaBuildFile = """\
+plugins {
+	id 'java-library'
+	id 'de.protos.etrice-java'
+}
+${repositories}
+configurations {
+	implementation.extendsFrom modelpath
+}
+dependencies {
+	generator 'org.eclipse.etrice:org.eclipse.etrice.generator.java:${etriceVersion}'
+	modelpath 'org.eclipse.etrice:org.eclipse.etrice.modellib.java:${etriceVersion}'
+	implementation 'org.eclipse.etrice:org.eclipse.etrice.runtime.java:${etriceVersion}'
+}
+sourceSets.main.java.srcDir modelSet.room.genDir"""
+def libBuildFile = """\
+plugins {
+	id 'de.protos.source-publish'
+}
+zipSource.from 'src'"""
+def roomFile = """\
+RoomModel test {
+	ActorClass ATest {
+	}
+}"""
+GradleProjectBuilder.build("etriceConfigurationCacheTest") {
+	write("settings.gradle", "include 'c', 'java', 'lib'")
+	write("c/build.gradle", cBuildFile)
+	write("c/model/test.room", roomFile)
+	write("java/build.gradle", javaBuildFile)
+	write("java/model/test.room", roomFile)
+	write("lib/build.gradle", libBuildFile)
+	write("lib/src/test.c", "int x() { return 1; }")
+	def tasks = ["build", ":c:unzipModel", ":c:unzipSource", "--configuration-cache"]
+	gradle(tasks) {
+		assert output.contains("Configuration cache entry stored")
+		assert task(":c:generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert task(":java:generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert task(":c:unzipSource")?.outcome == TaskOutcome.SUCCESS
+	}
+	write("c/model/test.room", roomFile.replace("ATest", "AChanged"))
+	gradle(tasks) {
+		assert output.contains("Reusing configuration cache.")
+		assert task(":c:generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert task(":java:generateRoom")?.outcome == TaskOutcome.UP_TO_DATE
+		assert exists("c/build/src-gen/room/test/AChanged.c")
+		assert exists("c/build/sourcelib/test.c")
+	}
+}}
+
+@Test
+void "reuse configuration cache for etunit convert"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etunit-convert'
+}
+${repositories}
+etunitConvert {
+	convertTestResults {
+		source 'log'
+	}
+}"""
+def etuFile = """\
+etUnit report
+ts start: etUnit
+tc start 11: openAll and closeAll
+tc end 11: 0"""
+GradleProjectBuilder.build("etunitConvertConfigurationCacheTest") {
+	write("build.gradle", buildFile)
+	write("log/test1.etu", etuFile)
+	def tasks = ["convertTestResults", "--configuration-cache"]
+	gradle(tasks) {
+		assert output.contains("Configuration cache entry stored")
+		assert task(":convertTestResults")?.outcome == TaskOutcome.SUCCESS
+	}
+	delete("log/test1.xml")
+	gradle(tasks) {
+		assert output.contains("Reusing configuration cache.")
+		assert task(":convertTestResults")?.outcome == TaskOutcome.SUCCESS
+		assert exists("log/test1.xml")
+	}
+}}
+
+@Test
+void "use etunit conversion in place of its task"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etunit-convert'
+}
+${repositories}
+etunitConvert {
+	convertTestResults {
+		source 'log'
+	}
+}
+tasks.register('prepareTestResults')
+etunitConvert.convertTestResults.dependsOn 'prepareTestResults'
+etunitConvert.convertTestResults.description = 'Converts the test results'
+tasks.register('testReport') {
+	dependsOn etunitConvert.convertTestResults
+}"""
+def etuFile = """\
+etUnit report
+ts start: etUnit
+tc start 11: openAll and closeAll
+tc end 11: 0"""
+GradleProjectBuilder.build("etunitConvertTaskApiTest") {
+	write("build.gradle", buildFile)
+	write("log/test1.etu", etuFile)
+	gradle("testReport") {
+		assert task(":prepareTestResults")?.outcome == TaskOutcome.UP_TO_DATE
+		assert task(":convertTestResults")?.outcome == TaskOutcome.SUCCESS
+		assert exists("log/test1.xml")
+	}
+	gradle(["help", "--task", "convertTestResults"]) {
+		assert output.contains("Converts the test results")
+	}
+}}
+
+@Test
+void "configure model sources and etunit conversions without realizing tasks"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etrice-c'
+	id 'de.protos.etunit-convert'
+	id 'de.protos.model-library'
+}
+def realizedTasks = []
+[de.protos.etrice.gradle.GenerateTask, de.protos.etrice.gradle.ModelDependentsTask, de.protos.etrice.gradle.EtUnitConvertTask,
+		de.protos.etrice.gradle.EclipseModelpathTask, de.protos.etrice.gradle.UnzipTask, Zip].each { type ->
+	tasks.withType(type).configureEach { realizedTasks << it.name }
+}
+modelSet {
+	room {
+		modelpath.from unzipModel.destination
+		option 'msc_instr'
+		incremental = true
+	}
+	doc {
+		source.srcDir 'model'
+		module = 'etrice-doc'
+	}
+}
+tasks.register('consumeRoom') {
+	inputs.dir modelSet.room.genDir
+}
+etunitConvert {
+	convertTestResults {
+		source 'log'
+		options.addAll '-suite', 'test'
+	}
+}
+gradle.taskGraph.whenReady {
+	println "Realized eTrice tasks: \${realizedTasks.size()} \${realizedTasks}"
+}"""
+GradleProjectBuilder.build("etriceLazyConfigurationTest") {
+	write("build.gradle", buildFile)
+	gradle("help") {
+		assert output.contains("Realized eTrice tasks: 0 []")
+	}
+	gradle("generateDoc") {
+		assert task(":generateDoc")?.outcome == TaskOutcome.NO_SOURCE
+		assert output.contains("Realized eTrice tasks: 1 [generateDoc]")
+	}
+}}
+
+@Test
+void "generate independent models in parallel partitions"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etrice-c'
+}
+${repositories}
+dependencies {
+	generator 'org.eclipse.etrice:org.eclipse.etrice.generator.c:${etriceVersion}'
+}
+modelSet {
+	room {
+		partitioned = true
+		partitions.add 'explicit/**'
+		parallelism = 3
+	}
+}"""
+def roomFile = { name, body -> """\
+RoomModel ${name} {
+${body}
+}""" }
+GradleProjectBuilder.build("etriceParallelPartitionsTest") {
+	write("build.gradle", buildFile)
+	write("model/base.room", roomFile("base", "\tActorClass ABase {\n\t}"))
+	write("model/user.room", roomFile("user", "\timport base.ABase\n\tActorClass AUser {\n\t\tStructure {\n\t\t\tActorRef aref : ABase\n\t\t}\n\t}"))
+	write("model/other.room", roomFile("other", "\tActorClass AOther {\n\t}"))
+	write("model/explicit/first.room", roomFile("first", "\tActorClass AFirst {\n\t}"))
+	write("model/explicit/second.room", roomFile("second", "\tActorClass ASecond {\n\t}"))
+	gradle(["generateRoom", "--info"]) {
+		assert task(":generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert output.contains("Generating 3 partitions in parallel")
+		["base/ABase.c", "user/AUser.c", "other/AOther.c", "first/AFirst.c", "second/ASecond.c"].each {
+			assert exists("build/src-gen/room/" + it)
+		}
+	}
+}}
+
+@Test
+void "generate concurrently with pooled generator applications in the same class loader"() {
+def rootBuildFile = """\
+plugins {
+	id 'de.protos.etrice-c' apply false
+}
+subprojects {
+	apply plugin: 'de.protos.etrice-c'
+	${repositories}
+	dependencies {
+		generator 'org.eclipse.etrice:org.eclipse.etrice.generator.c:${etriceVersion}'
+	}
+	modelSet {
+		room {
+			isolation = 'classLoader'
+		}
+	}
+}"""
+def roomFile = { name -> """\
+RoomModel ${name} {
+	ActorClass A {
+	}
+}""" }
+GradleProjectBuilder.build("etriceApplicationPoolTest") {
+	write("settings.gradle", "include 'p1', 'p2', 'p3'")
+	write("build.gradle", rootBuildFile)
+	["p1", "p2", "p3"].each { write("${it}/model/${it}.room", roomFile(it)) }
+	gradle(["generate", "--parallel", "--max-workers=3"]) {
+		["p1", "p2", "p3"].each {
+			assert task(":${it}:generateRoom")?.outcome == TaskOutcome.SUCCESS
+			assert exists("${it}/build/src-gen/room/${it}/A.c")
+		}
+	}
+}}
+
+@Test
+void "generate with selected isolation mode and fork options"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etrice-c'
+}
+${repositories}
+dependencies {
+	generator 'org.eclipse.etrice:org.eclipse.etrice.generator.c:${etriceVersion}'
+}
+modelSet {
+	room {
+		isolation = 'classLoader'
+	}
+	large {
+		source.srcDir 'large'
+		module = 'etrice-c'
+		maxHeapSize = '256m'
+		minHeapSize = '64m'
+		garbageCollector = 'Serial'
+		jvmArgs.add '-Dsome.property=value'
+	}
+}"""
+def roomFile = """\
+RoomModel test {
+	ActorClass ATest {
+	}
+}"""
+def largeRoomFile = """\
+RoomModel large {
+	ActorClass ALarge {
+	}
+}"""
+GradleProjectBuilder.build("etriceIsolationTest") {
+	write("build.gradle", buildFile)
+	write("model/test.room", roomFile)
+	write("large/large.room", largeRoomFile)
+	gradle("generate") {
+		assert task(":generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert task(":generateLarge")?.outcome == TaskOutcome.SUCCESS
+		assert exists("build/src-gen/room/test/ATest.c")
+		assert exists("build/src-gen/large/large/ALarge.c")
+	}
+	write("build.gradle", buildFile.replace("'classLoader'", "'unknown'"))
+	write("model/test.room", roomFile.replace("ATest", "AChanged"))
+	gradleAndFail(["generateRoom"]) {
+		assert output.contains("unknown isolation mode unknown")
+	}
+}}
+
+@Test
+void "pass generator arguments in an argument file"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etrice-c'
+	id 'de.protos.model-library'
+}
+${repositories}
+dependencies {
+	generator 'org.eclipse.etrice:org.eclipse.etrice.generator.c:${etriceVersion}'
+	modelLibrary 'org.eclipse.etrice:org.eclipse.etrice.modellib.c:${etriceVersion}'
+}
+modelSet {
+	room {
+		modelpath.from unzipModel.destination
+		argumentFile = true
+		incremental = true
+	}
+}"""
+def roomFile = """\
+RoomModel test {
+	import etrice.api.types.int32
+	ActorClass ATest {
+		Structure {
+			Attribute value : int32
+		}
+	}
+}"""
+GradleProjectBuilder.build("etriceArgumentFileTest") {
+	write("build.gradle", buildFile)
+	write("model/test.room", roomFile)
+	gradle("generate") {
+		assert task(":generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert exists("build/src-gen/room/test/ATest.c")
+		assert exists("build/tmp/generateRoom/arguments.bin")
+	}
+}}
+
+@Test
+void "write only changed generated files and list them in the manifest"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etrice-c'
+}
+${repositories}
+dependencies {
+	generator 'org.eclipse.etrice:org.eclipse.etrice.generator.c:${etriceVersion}'
+}"""
+def roomFile = """\
+RoomModel test {
+	ActorClass ATest {
+	}
+}"""
+def extendedRoomFile = """\
+RoomModel test {
+	ActorClass ATest {
+	}
+	ActorClass ANew {
+	}
+}"""
+GradleProjectBuilder.build("etriceWriteIfChangedTest") {
+	write("build.gradle", buildFile)
+	write("model/test.room", roomFile)
+	def generatedFile = projectDir.resolve("build/src-gen/room/test/ATest.c").toFile()
+	def manifestFile = projectDir.resolve("build/etrice-manifests/generateRoom.txt").toFile()
+	gradle("generateRoom") {
+		assert task(":generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert manifestFile.readLines().contains("A\ttest/ATest.c")
+	}
+	def lastModified = generatedFile.lastModified()
+	Thread.sleep(1000)
+	write("model/test.room", extendedRoomFile)
+	gradle("generateRoom") {
+		assert task(":generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert exists("build/src-gen/room/test/ANew.c")
+		assert generatedFile.lastModified() == lastModified
+		assert manifestFile.readLines().contains("A\ttest/ANew.c")
+		assert !manifestFile.readLines().contains("M\ttest/ATest.c")
+	}
+	write("model/test.room", roomFile)
+	gradle("generateRoom") {
+		assert task(":generateRoom")?.outcome == TaskOutcome.SUCCESS
+		assert !exists("build/src-gen/room/test/ANew.c")
+		assert manifestFile.readLines().contains("D\ttest/ANew.c")
+	}
+}}
+
+@Test
+void "resolve published model library with pre-built model index"() {
+def repoDir = new File("build/tmp/etriceModelIndexRepo").absoluteFile
+repoDir.deleteDir()
+def repoUrl = repoDir.toURI().toString()
+def libBuildFile = """\
+plugins {
+	id 'de.protos.etrice-base'
+	id 'maven-publish'
+}
+group = 'test'
+version = '1.0'
+modelSet {
+	room {
+		source.srcDir 'model'
+	}
+}
+publishing {
+	publications {
+		lib(MavenPublication) {
+			from components.adhoc
+		}
+	}
+	repositories {
+		maven {
+			url = '${repoUrl}'
+		}
+	}
+}"""
+def appBuildFile = """\
+plugins {
+	id 'de.protos.etrice-base'
+}
+repositories {
+	maven {
+		url = '${repoUrl}'
+	}
+}
+dependencies {
+	modelpath 'test:lib:1.0'
+}
+modelSet {
+	room {
+		source.srcDir 'model'
+	}
+}
+tasks.register('printModelpath') {
+	def modelpath = configurations.generateModelpath
+	doLast {
+		modelpath.each { println 'modelpath: ' + it }
+	}
+}"""
+def baseRoomFile = """\
+RoomModel base {
+	ActorClass ABase {
+	}
+}"""
+def midRoomFile = """\
+RoomModel mid {
+	import base.ABase
+	ActorClass AMid {
+		Structure {
+			ActorRef aref : ABase
+		}
+	}
+}"""
+def userRoomFile = """\
+RoomModel user {
+	import mid.AMid
+	ActorClass AUser {
+		Structure {
+			ActorRef aref : AMid
+		}
+	}
+}"""
+GradleProjectBuilder.build("etriceModelIndexLibTest") {
+	write("settings.gradle", "rootProject.name = 'lib'")
+	write("build.gradle", libBuildFile)
+	write("model/base.room", baseRoomFile)
+	write("model/mid.room", midRoomFile)
+	gradle("publish") {
+		assert task(":indexModel")?.outcome == TaskOutcome.SUCCESS
+		assert task(":zipModel")?.outcome == TaskOutcome.SUCCESS
+	}
+	def modelZip = projectDir.resolve("build/libs/lib-1.0-model.zip").toFile()
+	def publishedBytes = modelZip.bytes
+	projectDir.resolve("model/base.room").toFile().lastModified = 0
+	projectDir.resolve("model/mid.room").toFile().lastModified = 0
+	gradle(["zipModel", "--rerun-tasks"]) {
+		assert task(":indexModel")?.outcome == TaskOutcome.SUCCESS
+		assert modelZip.bytes == publishedBytes
+	}
+}
+GradleProjectBuilder.build("etriceModelIndexAppTest") {
+	write("settings.gradle", "include 'app1', 'app2'")
+	write("app1/build.gradle", appBuildFile)
+	write("app1/model/user.room", userRoomFile)
+	write("app2/build.gradle", appBuildFile)
+	gradle([":app1:printModelpath", ":app2:printModelpath", ":app1:modelDependentsRoom", "--model", "base"]) {
+		def modelpathDirs = output.readLines().findAll { it.startsWith("modelpath: ") }.collect { new File(it.substring(11)) }
+		assert modelpathDirs.size() == 2
+		assert modelpathDirs[0] == modelpathDirs[1]
+		assert modelpathDirs[0].name == "lib-1.0-model"
+		assert new File(modelpathDirs[0], "mid.room").isFile()
+		assert new File(modelpathDirs[0], "META-INF/etrice/model-index.bin").isFile()
+		assert output.contains("user.room")
+	}
+}}
+
 @Test
 void "zip and unzip source"() {
 def libBuildFile = """\
@@ -186,6 +1131,54 @@ GradleProjectBuilder.build("etriceSourceZipUnzipTest") {
 	}
 }}
 
+@Test
+void "unzip only changed source files"() {
+def libBuildFile = """\
+plugins {
+	id 'de.protos.source-publish'
+}
+zipSource.from 'src'"""
+def appBuildFile = """\
+plugins {
+	id 'de.protos.source-library'
+}
+dependencies {
+	sourceLibrary project(':lib')
+}
+unzipSource.incremental = true"""
+GradleProjectBuilder.build("etriceIncrementalUnzipTest") {
+	write("settings.gradle", "include 'lib', 'app'")
+	write("lib/build.gradle", libBuildFile)
+	write("lib/src/foo.c", "int foo() { return 1; }")
+	write("lib/src/bar.c", "int bar() { return 1; }")
+	write("app/build.gradle", appBuildFile)
+	def fooFile = projectDir.resolve("app/build/sourcelib/foo.c").toFile()
+	def barFile = projectDir.resolve("app/build/sourcelib/bar.c").toFile()
+	gradle("unzipSource") {
+		assert task(":app:unzipSource")?.outcome == TaskOutcome.SUCCESS
+		assert fooFile.isFile() && barFile.isFile()
+	}
+	def lastModified = fooFile.lastModified()
+	Thread.sleep(1000)
+	write("lib/src/bar.c", "int bar() { return 2; }")
+	gradle("unzipSource") {
+		assert task(":app:unzipSource")?.outcome == TaskOutcome.SUCCESS
+		assert fooFile.lastModified() == lastModified
+		assert barFile.text == "int bar() { return 2; }"
+	}
+	projectDir.resolve("lib/src/bar.c").toFile().delete()
+	gradle("unzipSource") {
+		assert task(":app:unzipSource")?.outcome == TaskOutcome.SUCCESS
+		assert fooFile.lastModified() == lastModified
+		assert !barFile.exists()
+	}
+	fooFile.text = "int foo() { return 3; }"
+	gradle("unzipSource") {
+		assert task(":app:unzipSource")?.outcome == TaskOutcome.SUCCESS
+		assert fooFile.text == "int foo() { return 1; }"
+	}
+}}
+
 @Test
 void "convert etunit files"() {
 def buildFile = """\
@@ -220,6 +1213,171 @@ GradleProjectBuilder.build("etunitConvertTest") {
 	}
 }}
 
+@Test
+void "convert changed etunit files to output directory"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etunit-convert'
+}
+${repositories}
+etunitConvert {
+	convertTestResults {
+		source 'log'
+		outputDir = layout.buildDirectory.dir('test-results/convertTestResults')
+	}
+}"""
+def etuFile = """\
+etUnit report
+ts start: etUnit
+tc start 11: openAll and closeAll
+tc end 11: 0"""
+GradleProjectBuilder.build("etunitConvertIncrementalTest") {
+	write("build.gradle", buildFile)
+	write("log/test1.etu", etuFile)
+	def xmlFile1 = projectDir.resolve("build/test-results/convertTestResults/test1.xml").toFile()
+	def xmlFile2 = projectDir.resolve("build/test-results/convertTestResults/test2.xml").toFile()
+	gradle("convertTestResults") {
+		assert task(":convertTestResults")?.outcome == TaskOutcome.SUCCESS
+		assert xmlFile1.isFile()
+		assert !exists("log/test1.xml")
+		assert !exists("build/test-results/convertTestResults/test1.etu")
+	}
+	def lastModified = xmlFile1.lastModified()
+	Thread.sleep(1000)
+	write("log/test2.etu", etuFile)
+	gradle("convertTestResults") {
+		assert task(":convertTestResults")?.outcome == TaskOutcome.SUCCESS
+		assert xmlFile2.isFile()
+		assert xmlFile1.lastModified() == lastModified
+	}
+	delete("log/test1.etu")
+	gradle("convertTestResults") {
+		assert task(":convertTestResults")?.outcome == TaskOutcome.SUCCESS
+		assert !xmlFile1.exists()
+		assert xmlFile2.isFile()
+	}
+}}
+
+@Test
+void "convert etunit files with built-in converter"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etunit-convert'
+}
+etunitConvert {
+	convertTestResults {
+		source 'log'
+		converter = 'builtIn'
+	}
+}"""
+def etuFile = """\
+etUnit report
+ts start: etUnit
+tc start 11: openAll and closeAll
+tc end 11: 0
+tc start 12: compare
+tc fail 12: #1#2#test.c:12#values differ
+tc end 12: 1500"""
+GradleProjectBuilder.build("etunitBuiltInConvertTest") {
+	write("build.gradle", buildFile)
+	write("log/test.etu", etuFile)
+	gradle("convertTestResults") {
+		assert task(":convertTestResults")?.outcome == TaskOutcome.SUCCESS
+		def xml = projectDir.resolve("log/test.xml").toFile().text
+		assert xml.contains('<testsuite name="etUnit" tests="2" failures="1" errors="0" time="1.5">')
+		assert xml.contains('<testcase name="openAll and closeAll" classname="etUnit" time="0.0"/>')
+		assert xml.contains('<failure message="values differ">expected: 1, actual: 2, location: test.c:12</failure>')
+	}
+}}
+
+@Test
+void "convert etunit files with built-in converter like eTrice converter"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etunit-convert'
+}
+${repositories}
+etunitConvert {
+	convertExternal {
+		source 'log'
+		outputDir = layout.buildDirectory.dir('external')
+		options.addAll '-combined', 'build/external-combined.xml'
+	}
+	convertBuiltIn {
+		source 'log'
+		outputDir = layout.buildDirectory.dir('builtIn')
+		options.addAll '-combined', 'build/builtIn-combined.xml'
+		converter = 'builtIn'
+	}
+}"""
+def etuFile1 = """\
+etUnit report
+ts start: etUnit
+tc start 11: openAll and closeAll
+tc end 11: 0
+tc start 12: compare
+tc fail 12: #1#2#test.c:12#values differ
+tc end 12: 1500"""
+def etuFile2 = """\
+etUnit report
+ts start: other
+tc start 21: passes
+tc end 21: 3"""
+def normalize = { File xmlFile ->
+	new groovy.xml.XmlSlurper().parse(xmlFile).testsuite.collect { suite ->
+		[suite.@name.text(), suite.@tests.text(), suite.@failures.text(), suite.@errors.text(),
+			suite.testcase.collect { testCase -> [testCase.@name.text(), testCase.@classname.text(), testCase.failure.collect { it.@message.text() }] }]
+	}
+}
+GradleProjectBuilder.build("etunitBuiltInCompareTest") {
+	write("build.gradle", buildFile)
+	write("log/test1.etu", etuFile1)
+	write("log/test2.etu", etuFile2)
+	gradle(["convertExternal", "convertBuiltIn"]) {
+		assert task(":convertExternal")?.outcome == TaskOutcome.SUCCESS
+		assert task(":convertBuiltIn")?.outcome == TaskOutcome.SUCCESS
+	}
+	["test1.xml", "test2.xml"].each { name ->
+		def builtIn = normalize(projectDir.resolve("build/builtIn/" + name).toFile())
+		assert !builtIn.isEmpty()
+		assert builtIn == normalize(projectDir.resolve("build/external/" + name).toFile())
+	}
+	def combined = normalize(projectDir.resolve("build/builtIn-combined.xml").toFile())
+	assert combined.size() == 2
+	assert combined == normalize(projectDir.resolve("build/external-combined.xml").toFile())
+}}
+
+@Test
+void "write generation metrics report"() {
+def buildFile = """\
+plugins {
+	id 'de.protos.etunit-convert'
+}
+etunitConvert {
+	convertTestResults {
+		source 'log'
+		converter = 'builtIn'
+	}
+}"""
+def etuFile = """\
+etUnit report
+ts start: etUnit
+tc start 11: openAll and closeAll
+tc end 11: 0"""
+GradleProjectBuilder.build("etriceMetricsReportTest") {
+	write("build.gradle", buildFile)
+	write("log/test1.etu", etuFile)
+	write("log/test2.etu", etuFile)
+	gradle("convertTestResults") {
+		assert task(":convertTestResults")?.outcome == TaskOutcome.SUCCESS
+	}
+	def json = projectDir.resolve("build/reports/etrice/generation-metrics.json").toFile().text
+	assert json.contains('"task": ":convertTestResults", "type": "EtUnitConvertTask", "failed": false, "inputFiles": 2, "outputFiles": 2')
+	def csv = projectDir.resolve("build/reports/etrice/generation-metrics.csv").toFile().readLines()
+	assert csv[0].startsWith("task,type,failed,inputFiles,outputFiles,outputBytes,writtenFiles,workItems,workersSpawned,workersReused")
+	assert csv[1].startsWith(":convertTestResults,EtUnitConvertTask,false,2,2,")
+}}
+
 @Test
 void "snapshot minimal C generation"() {
 def buildFile = """\
@@ -1,6 +1,7 @@
 package de.protos.etrice.gradle;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -9,6 +10,8 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.gradle.testkit.runner.BuildResult;
 import org.gradle.testkit.runner.GradleRunner;
@@ -97,21 +100,74 @@ public class GradleProjectBuilder {
 	 * @return the result of the build execution
 	 */
 	public BuildResult gradle(String task, @DelegatesTo(value = BuildResult.class, strategy = Closure.DELEGATE_FIRST) Closure<?> closure) {
-		var args = new ArrayList<String>();
-		args.add(task);
-		args.add("--warning-mode=fail");  // fail on deprecation warnings
-		BuildResult result = GradleRunner.create()
-			.withPluginClasspath()
-			.withProjectDir(projectDir.toFile())
-			.withArguments(args)
-			.forwardOutput()
-			.build();
+		return gradle(Collections.singletonList(task), closure);
+	}
+	
+	/**
+	 * Executes a Gradle build.
+	 * 
+	 * @param arguments the tasks and options of the build
+	 * @param closure a closure to evaluate the build result
+	 * @return the result of the build execution
+	 */
+	public BuildResult gradle(List<String> arguments, @DelegatesTo(value = BuildResult.class, strategy = Closure.DELEGATE_FIRST) Closure<?> closure) {
+		BuildResult result = createRunner(arguments).build();
 		closure.setDelegate(result);
 		closure.setResolveStrategy(Closure.DELEGATE_FIRST);
 		closure.call();
 		return result;
 	}
 	
+	/**
+	 * Executes a Gradle build that is expected to fail.
+	 * 
+	 * @param arguments the tasks and options of the build
+	 * @param closure a closure to evaluate the build result
+	 * @return the result of the build execution
+	 */
+	public BuildResult gradleAndFail(List<String> arguments, @DelegatesTo(value = BuildResult.class, strategy = Closure.DELEGATE_FIRST) Closure<?> closure) {
+		BuildResult result = createRunner(arguments).buildAndFail();
+		closure.setDelegate(result);
+		closure.setResolveStrategy(Closure.DELEGATE_FIRST);
+		closure.call();
+		return result;
+	}
+	
+	/**
+	 * Executes a Gradle build and measures its wall-clock duration.
+	 * The build output is not forwarded, so that large builds do not distort the measurement.
+	 * 
+	 * @param arguments the tasks and options of the build
+	 * @param closure a closure to evaluate the build result
+	 * @return the duration of the build in milliseconds
+	 */
+	public long measure(List<String> arguments, @DelegatesTo(value = BuildResult.class, strategy = Closure.DELEGATE_FIRST) Closure<?> closure) {
+		GradleRunner runner = createRunner(arguments).forwardStdOutput(new StringWriter());
+		long start = System.nanoTime();
+		BuildResult result = runner.build();
+		long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		closure.setDelegate(result);
+		closure.setResolveStrategy(Closure.DELEGATE_FIRST);
+		closure.call();
+		return duration;
+	}
+	
+	/**
+	 * Creates a runner for a Gradle build in the project directory.
+	 * 
+	 * @param arguments the tasks and options of the build
+	 * @return the configured runner
+	 */
+	private GradleRunner createRunner(List<String> arguments) {
+		var args = new ArrayList<String>(arguments);
+		args.add("--warning-mode=fail");  // fail on deprecation warnings
+		return GradleRunner.create()
+			.withPluginClasspath()
+			.withProjectDir(projectDir.toFile())
+			.withArguments(args)
+			.forwardOutput();
+	}
+	
 	/**
 	 * Deletes a file or directory.
 	 * 
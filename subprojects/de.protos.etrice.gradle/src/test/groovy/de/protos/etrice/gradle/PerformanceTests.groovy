@@ -0,0 +1,179 @@
+package de.protos.etrice.gradle
+
+import org.junit.jupiter.api.Assumptions
+import org.junit.jupiter.api.Tag
+import org.junit.jupiter.api.Test
+import org.gradle.testkit.runner.TaskOutcome
+
+/**
+ * Performance regression suite with synthetic multi-project builds.
+ * The builds use the offline stub generator, so the measurements cover the plugins and tasks and not the eTrice generator.
+ * Each scenario runs warm-up builds followed by measured builds and compares the median with the stored budget.
+ * Run with 'gradlew performanceTest', the Gradle property etrice.performance.layouts selects a comma separated subset of the layouts.
+ */
+@Tag("performance")
+public class PerformanceTests {
+
+def warmUps = 2
+def iterations = 5
+def budgets = loadBudgets()
+def budgetFactor = Double.parseDouble(System.getProperty("etrice.performance.budgetFactor", "1.0"))
+def stubGenerator = System.getProperty("etrice.stubGenerator", "").split(File.pathSeparator).findAll { it }
+
+@Test
+void "small layout with 1 project and 10 model files"() {
+measureLayout("small", 1, 10)
+}
+
+@Test
+void "wide layout with 50 projects and 100 model files each"() {
+measureLayout("wide", 50, 100)
+}
+
+@Test
+void "deep layout with 1 project and 5000 model files"() {
+measureLayout("deep", 1, 5000)
+}
+
+@Test
+void "large layout with 200 projects and 25 model files each"() {
+measureLayout("large", 200, 25)
+}
+
+/**
+ * Creates a synthetic build and measures all scenarios.
+ * Every project depends on the model library of the previous project, the first model file of a project imports the previous project.
+ */
+void measureLayout(String layout, int projectCount, int fileCount) {
+def layouts = System.getProperty("etrice.performance.layouts")
+Assumptions.assumeTrue(layouts == null || layout in layouts.split(",")*.trim(), "layout ${layout} is not selected")
+Assumptions.assumeFalse(stubGenerator.isEmpty(), "the classpath of the stub generator is not set")
+
+def cacheDir = new File("build/tmp/etricePerformanceCache-${layout}").absoluteFile
+cacheDir.deleteDir()
+def projects = (0..<projectCount).collect { "p${it}" }
+def settingsFile = """\
+include ${projects.collect { "'${it}'" }.join(", ")}
+buildCache {
+	local {
+		directory = file('${cacheDir.path.replace('\\', '/')}')
+	}
+}"""
+def rootBuildFile = """\
+plugins {
+	id 'de.protos.etrice-base' apply false
+}
+subprojects {
+	apply plugin: 'de.protos.etrice-base'
+	dependencies {
+		generator files(${stubGenerator.collect { "'${it.replace('\\', '/')}'" }.join(", ")})
+	}
+	modelSet {
+		room {
+			source.srcDir 'model'
+			module = 'stub'
+		}
+	}
+}"""
+def generateTasks = projects.collect { ":${it}:generateRoom" }
+def editedFile = "${projects.last()}/model/m${fileCount - 1}.room"
+def edits = 0
+def results = [:]
+
+GradleProjectBuilder.build("etricePerformance-${layout}") {
+	write("settings.gradle", settingsFile)
+	write("build.gradle", rootBuildFile)
+	projects.eachWithIndex { project, p ->
+		write("${project}/build.gradle", p == 0 ? "" : "dependencies {\n\tmodelpath project(':${projects[p - 1]}')\n}")
+		for(int f = 0; f < fileCount; f++)
+			write("${project}/model/m${f}.room", roomFile(p, f, ""))
+	}
+
+	results.configuration = measureScenario(layout, "configuration") {
+		measure(["generate", "--dry-run"]) {
+			assert output.contains(":${projects.last()}:generateRoom SKIPPED")
+		}
+	}
+	results.cleanGeneration = measureScenario(layout, "cleanGeneration") {
+		measure(["clean", "generate"]) {
+			assert generateTasks.every { task(it)?.outcome == TaskOutcome.SUCCESS }
+		}
+	}
+	results.upToDate = measureScenario(layout, "upToDate") {
+		measure(["generate"]) {
+			assert generateTasks.every { task(it)?.outcome == TaskOutcome.UP_TO_DATE }
+		}
+	}
+	results.singleFileEdit = measureScenario(layout, "singleFileEdit") {
+		write(editedFile, roomFile(projectCount - 1, fileCount - 1, "// edit ${++edits}"))
+		measure(["generate"]) {
+			assert task(generateTasks.last())?.outcome == TaskOutcome.SUCCESS
+		}
+	}
+	gradle(["clean", "generate", "--build-cache"]) {}  // populate the build cache
+	results.cacheHit = measureScenario(layout, "cacheHit") {
+		measure(["clean", "generate", "--build-cache"]) {
+			assert generateTasks.every { task(it)?.outcome == TaskOutcome.FROM_CACHE }
+		}
+	}
+}
+
+def reportFile = new File("build/reports/performance/${layout}.csv")
+reportFile.parentFile.mkdirs()
+reportFile.text = "scenario,median,budget,measurements\n" + results.collect { scenario, measurements ->
+	"${scenario},${median(measurements)},${budget(layout, scenario)},${measurements.join(' ')}"
+}.join("\n") + "\n"
+def exceeded = results.findAll { scenario, measurements -> median(measurements) > budget(layout, scenario) }
+assert exceeded.isEmpty() : "performance budgets of layout ${layout} exceeded: " + exceeded.collect { scenario, measurements ->
+	"${scenario} ${median(measurements)} ms > ${budget(layout, scenario)} ms"
+}.join(", ")
+}
+
+/**
+ * Runs the warm-up builds and the measured builds of a scenario.
+ *
+ * @param closure a closure that executes one build and returns its duration
+ * @return the durations of the measured builds in milliseconds
+ */
+List<Long> measureScenario(String layout, String scenario, Closure<Long> closure) {
+warmUps.times { closure.call() }
+def measurements = (1..iterations).collect { closure.call() }
+println "${layout}.${scenario}: median ${median(measurements)} ms, budget ${budget(layout, scenario)} ms, measurements ${measurements}"
+return measurements
+}
+
+/**
+ * @return a model file that imports the previous model of the project, respectively the first model of the previous project
+ */
+static String roomFile(int project, int file, String comment) {
+def name = "p${project}.m${file}"
+def imported = file > 0 ? "p${project}.m${file - 1}" : (project > 0 ? "p${project - 1}.m0" : null)
+return """\
+${comment}
+RoomModel ${name} {
+	${imported ? "import ${imported}.A" : ""}
+	ActorClass A {
+		Structure {
+			Attribute value : int32
+		}
+	}
+}"""
+}
+
+long budget(String layout, String scenario) {
+def budget = budgets.getProperty("${layout}.${scenario}")
+assert budget != null : "no performance budget for ${layout}.${scenario}"
+return Math.round(Long.parseLong(budget) * budgetFactor)
+}
+
+static long median(List<Long> measurements) {
+def sorted = measurements.sort(false)
+return sorted[sorted.size().intdiv(2)]
+}
+
+static Properties loadBudgets() {
+def budgets = new Properties()
+PerformanceTests.getResourceAsStream("performance-budgets.properties").withStream { budgets.load(it) }
+return budgets
+}
+}